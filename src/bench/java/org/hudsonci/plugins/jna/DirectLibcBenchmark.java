@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * File operations through the direct mapped {@link DirectGNUCLibrary}, for comparison
+ * with the interface proxy measured by {@link LibcBenchmark}. mode and makeFileWritable
+ * go through {@link JnaNativeUnixSupport}, which uses the reusable {@link NativeFileStat}.
+ */
+public class DirectLibcBenchmark extends FileOperationBenchmark {
+
+    private final Memory buffer = new Memory(4096);
+    private final NativeLong bufferSize = new NativeLong(4096);
+    private final JnaNativeUnixSupport unixSupport = new JnaNativeUnixSupport();
+
+    @Benchmark
+    public int chmod() {
+        return DirectGNUCLibrary.chmod(filePath, nextMode());
+    }
+
+    @Benchmark
+    public int mode() {
+        return unixSupport.mode(file);
+    }
+
+    @Benchmark
+    public boolean makeFileWritable() {
+        return unixSupport.makeFileWritable(file);
+    }
+
+    @Benchmark
+    public boolean createSymlink() {
+        DirectGNUCLibrary.symlink(filePath, newLinkPath);
+        return newLink.delete();
+    }
+
+    @Benchmark
+    public String resolveSymlink() {
+        int r = DirectGNUCLibrary.readlink(linkPath, buffer, bufferSize);
+        return new String(buffer.getByteArray(0, r));
+    }
+}
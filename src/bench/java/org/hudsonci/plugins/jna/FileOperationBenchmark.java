@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Common fixture of the file operation benchmarks. Every benchmark thread gets its own
+ * directory holding a regular file and a symlink to it, so threads do not contend on
+ * the same inode.
+ *
+ * <p>
+ * The createSymlink benchmarks of every backend remove the new link again with
+ * {@link File#delete()}, so that part of the cost is the same for all of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public abstract class FileOperationBenchmark {
+
+    protected File dir;
+    protected File file;
+    protected File link;
+    protected File newLink;
+    protected String filePath;
+    protected String linkPath;
+    protected String newLinkPath;
+    private boolean toggle;
+
+    @Setup(Level.Trial)
+    public void createFiles() throws IOException {
+        dir = Files.createTempDirectory("jna-bench").toFile();
+        file = new File(dir, "file");
+        file.createNewFile();
+        link = new File(dir, "link");
+        Files.createSymbolicLink(link.toPath(), file.toPath());
+        newLink = new File(dir, "newLink");
+        filePath = file.getAbsolutePath();
+        linkPath = link.getAbsolutePath();
+        newLinkPath = newLink.getAbsolutePath();
+        filesCreated();
+    }
+
+    /**
+     * Called once the fixture files exist, for backends that need to prepare their own handles.
+     */
+    protected void filesCreated() {
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        newLink.delete();
+        link.delete();
+        file.delete();
+        dir.delete();
+    }
+
+    /**
+     * Alternates between two modes, so that every chmod really changes the file.
+     */
+    protected int nextMode() {
+        toggle = !toggle;
+        return toggle ? 0644 : 0600;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.LIBC;
+
+/**
+ * File operations through the {@link GNUCLibrary#LIBC} interface proxy.
+ */
+public class LibcBenchmark extends FileOperationBenchmark {
+
+    private final Memory buffer = new Memory(4096);
+    private final NativeLong bufferSize = new NativeLong(4096);
+    private final Memory statx = new Memory(256);
+
+    @Benchmark
+    public int chmod() {
+        return LIBC.chmod(filePath, nextMode());
+    }
+
+    @Benchmark
+    public int mode() {
+        LIBC.statx(GNUCLibrary.AT_FDCWD, filePath, 0, GNUCLibrary.STATX_BASIC_STATS, statx);
+        return statx.getShort(28) & 0xffff;
+    }
+
+    @Benchmark
+    public int makeFileWritable() {
+        return LIBC.chmod(filePath, mode() | 0200);
+    }
+
+    @Benchmark
+    public boolean createSymlink() {
+        LIBC.symlink(filePath, newLinkPath);
+        return newLink.delete();
+    }
+
+    @Benchmark
+    public String resolveSymlink() {
+        int r = LIBC.readlink(linkPath, buffer, bufferSize);
+        return new String(buffer.getByteArray(0, r));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * File operations through {@code java.nio.file}, the pure Java baseline.
+ */
+public class NioBenchmark extends FileOperationBenchmark {
+
+    private static final Set<PosixFilePermission> MODE_644 = PosixFilePermissions.fromString("rw-r--r--");
+    private static final Set<PosixFilePermission> MODE_600 = PosixFilePermissions.fromString("rw-------");
+
+    private Path filePath;
+    private Path linkPath;
+    private Path newLinkPath;
+
+    @Override
+    protected void filesCreated() {
+        filePath = file.toPath();
+        linkPath = link.toPath();
+        newLinkPath = newLink.toPath();
+    }
+
+    @Benchmark
+    public Path chmod() throws IOException {
+        return Files.setPosixFilePermissions(filePath, nextMode() == 0644 ? MODE_644 : MODE_600);
+    }
+
+    @Benchmark
+    public Object mode() throws IOException {
+        return Files.getAttribute(filePath, "unix:mode");
+    }
+
+    @Benchmark
+    public Path makeFileWritable() throws IOException {
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(filePath);
+        permissions.add(PosixFilePermission.OWNER_WRITE);
+        return Files.setPosixFilePermissions(filePath, permissions);
+    }
+
+    @Benchmark
+    public boolean createSymlink() throws IOException {
+        Files.createSymbolicLink(newLinkPath, filePath);
+        return newLink.delete();
+    }
+
+    @Benchmark
+    public String resolveSymlink() throws IOException {
+        return Files.readSymbolicLink(linkPath).toString();
+    }
+}
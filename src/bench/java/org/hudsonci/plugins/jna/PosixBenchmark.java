@@ -0,0 +1,63 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import org.jruby.ext.posix.FileStat;
+import org.jruby.ext.posix.POSIX;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * File operations through the jna-posix {@link PosixAPI}.
+ */
+public class PosixBenchmark extends FileOperationBenchmark {
+
+    private final POSIX posix = PosixAPI.get();
+
+    @Benchmark
+    public int chmod() {
+        return posix.chmod(filePath, nextMode());
+    }
+
+    @Benchmark
+    public int mode() {
+        return posix.stat(filePath).mode();
+    }
+
+    @Benchmark
+    public int makeFileWritable() {
+        FileStat stat = posix.stat(filePath);
+        return posix.chmod(filePath, stat.mode() | 0200);
+    }
+
+    @Benchmark
+    public boolean createSymlink() {
+        posix.symlink(filePath, newLinkPath);
+        return newLink.delete();
+    }
+
+    @Benchmark
+    public String resolveSymlink() {
+        return posix.readlink(linkPath);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * The control group of this process, which limits the memory and CPU it may use when it
+ * runs in a container. Both the unified hierarchy of cgroup v2 and the memory and cpu
+ * controllers of cgroup v1 are supported, mounted at the usual {@code /sys/fs/cgroup}.
+ *
+ * <p>
+ * Limits are read from the group of the process and every group above it up to the root
+ * of the hierarchy, the smallest one being effective. If the group path of the process is
+ * not visible, as in a container without its own cgroup namespace, the root of the
+ * hierarchy is used, which is then the container's group.
+ */
+public class Cgroup {
+
+    // v1 limits at or above this mean no limit, the kernel reports a page aligned LONG_MAX
+    private static final long V1_UNLIMITED = Long.MAX_VALUE / 2;
+
+    private final int version;
+    // group of the process and root of the hierarchy, per controller
+    private final File memoryDir;
+    private final File memoryRoot;
+    private final File cpuDir;
+    private final File cpuRoot;
+
+    private Cgroup(int version, File memoryDir, File memoryRoot, File cpuDir, File cpuRoot) {
+        this.version = version;
+        this.memoryDir = memoryDir;
+        this.memoryRoot = memoryRoot;
+        this.cpuDir = cpuDir;
+        this.cpuRoot = cpuRoot;
+    }
+
+    /**
+     * Finds the control group of this process.
+     *
+     * @param root the root of the file system, containing {@code proc/self/cgroup} and
+     * {@code sys/fs/cgroup}; another directory for tests
+     * @return the group, of version 0 if the process is in none
+     */
+    public static Cgroup detect(File root) {
+        File cgroupRoot = new File(root, "sys/fs/cgroup");
+        String unifiedPath = null;
+        File memoryDir = null;
+        File memoryRoot = null;
+        File cpuDir = null;
+        File cpuRoot = null;
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(new File(root, "proc/self/cgroup")), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // hierarchy-ID:controller-list:cgroup-path
+                    String[] fields = line.split(":", 3);
+                    if (fields.length < 3) {
+                        continue;
+                    }
+                    if (fields[0].equals("0") && fields[1].length() == 0) {
+                        unifiedPath = fields[2];
+                        continue;
+                    }
+                    for (String controller : fields[1].split(",")) {
+                        if (controller.equals("memory")) {
+                            memoryRoot = v1Root(cgroupRoot, fields[1], controller);
+                            memoryDir = groupDir(memoryRoot, fields[2]);
+                        } else if (controller.equals("cpu")) {
+                            cpuRoot = v1Root(cgroupRoot, fields[1], controller);
+                            cpuDir = groupDir(cpuRoot, fields[2]);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return new Cgroup(0, null, null, null, null);
+        }
+        if (memoryDir != null || cpuDir != null) {
+            return new Cgroup(1, memoryDir, memoryRoot, cpuDir, cpuRoot);
+        }
+        if (unifiedPath != null && new File(cgroupRoot, "cgroup.controllers").exists()) {
+            File dir = groupDir(cgroupRoot, unifiedPath);
+            return new Cgroup(2, dir, cgroupRoot, dir, cgroupRoot);
+        }
+        return new Cgroup(0, null, null, null, null);
+    }
+
+    /**
+     * 1 or 2 for cgroup v1 or v2, 0 if the process is in no control group.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Reads the current limits and memory usage of the group.
+     */
+    public CgroupLimits read() {
+        long memoryLimit = -1;
+        long memoryUsage = -1;
+        long inactiveFile = -1;
+        long swapLimit = -1;
+        long swapUsage = -1;
+        double cpuLimit = -1;
+        if (version == 2) {
+            memoryLimit = minimum(memoryDir, memoryRoot, "memory.max");
+            memoryUsage = readLong(new File(memoryDir, "memory.current"));
+            inactiveFile = readStat(new File(memoryDir, "memory.stat"), "inactive_file");
+            swapLimit = minimum(memoryDir, memoryRoot, "memory.swap.max");
+            swapUsage = readLong(new File(memoryDir, "memory.swap.current"));
+            for (File dir = cpuDir; dir != null; dir = parentWithin(dir, cpuRoot)) {
+                // "$MAX $PERIOD", $MAX being "max" without a limit
+                String[] quota = readLine(new File(dir, "cpu.max")).split(" ");
+                if (quota.length == 2 && !quota[0].equals("max")) {
+                    cpuLimit = minimum(cpuLimit, Double.parseDouble(quota[0]) / Double.parseDouble(quota[1]));
+                }
+            }
+        } else if (version == 1) {
+            if (memoryDir != null) {
+                memoryLimit = minimum(memoryDir, memoryRoot, "memory.limit_in_bytes");
+                memoryUsage = readLong(new File(memoryDir, "memory.usage_in_bytes"));
+                // total_ includes the child groups, as the usage does
+                inactiveFile = readStat(new File(memoryDir, "memory.stat"), "total_inactive_file");
+                // memsw is memory and swap together
+                long memswLimit = minimum(memoryDir, memoryRoot, "memory.memsw.limit_in_bytes");
+                long memswUsage = readLong(new File(memoryDir, "memory.memsw.usage_in_bytes"));
+                if (memswLimit >= 0 && memoryLimit >= 0) {
+                    swapLimit = Math.max(0, memswLimit - memoryLimit);
+                }
+                if (memswUsage >= 0 && memoryUsage >= 0) {
+                    swapUsage = Math.max(0, memswUsage - memoryUsage);
+                }
+            }
+            for (File dir = cpuDir; dir != null; dir = parentWithin(dir, cpuRoot)) {
+                long quota = readLong(new File(dir, "cpu.cfs_quota_us"));
+                long period = readLong(new File(dir, "cpu.cfs_period_us"));
+                if (quota > 0 && period > 0) {
+                    cpuLimit = minimum(cpuLimit, (double) quota / period);
+                }
+            }
+        }
+        return new CgroupLimits(memoryLimit, memoryUsage, inactiveFile, swapLimit, swapUsage, cpuLimit);
+    }
+
+    private static File v1Root(File cgroupRoot, String controllers, String controller) {
+        // mounted under the joined controller names, like cpu,cpuacct, often linked from each name
+        File dir = new File(cgroupRoot, controllers);
+        return dir.isDirectory() ? dir : new File(cgroupRoot, controller);
+    }
+
+    private static File groupDir(File hierarchyRoot, String path) {
+        File dir = new File(hierarchyRoot, path);
+        return dir.isDirectory() ? dir : hierarchyRoot;
+    }
+
+    private static File parentWithin(File dir, File root) {
+        return dir.equals(root) ? null : dir.getParentFile();
+    }
+
+    /**
+     * The smallest limit in the file from {@code dir} up to {@code root}, -1 if none.
+     */
+    private static long minimum(File dir, File root, String name) {
+        long limit = -1;
+        for (; dir != null; dir = parentWithin(dir, root)) {
+            long value = readLong(new File(dir, name));
+            if (value >= 0 && value < V1_UNLIMITED) {
+                limit = limit < 0 ? value : Math.min(limit, value);
+            }
+        }
+        return limit;
+    }
+
+    private static double minimum(double limit, double value) {
+        return limit < 0 ? value : Math.min(limit, value);
+    }
+
+    /**
+     * @return the number in the file, -1 if it is missing or holds "max"
+     */
+    private static long readLong(File file) {
+        String line = readLine(file);
+        try {
+            return line.length() == 0 || line.equals("max") ? -1 : Long.parseLong(line);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the value of the key in a memory.stat file, -1 if it is missing
+     */
+    private static long readStat(File file, String key) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // "$KEY $VALUE"
+                    String[] fields = line.trim().split(" ");
+                    if (fields.length == 2 && fields[0].equals(key)) {
+                        return Long.parseLong(fields[1]);
+                    }
+                }
+                return -1;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String readLine(File file) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line = reader.readLine();
+                return line == null ? "" : line.trim();
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+/**
+ * Limits and memory usage of a {@link Cgroup}, as read at one point in time. Sizes are
+ * in bytes, -1 meaning no limit or not known.
+ */
+public class CgroupLimits {
+
+    private final long memoryLimit;
+    private final long memoryUsage;
+    private final long inactiveFileMemory;
+    private final long swapLimit;
+    private final long swapUsage;
+    private final double cpuLimit;
+
+    public CgroupLimits(long memoryLimit, long memoryUsage, long inactiveFileMemory, long swapLimit, long swapUsage,
+            double cpuLimit) {
+        this.memoryLimit = memoryLimit;
+        this.memoryUsage = memoryUsage;
+        this.inactiveFileMemory = inactiveFileMemory;
+        this.swapLimit = swapLimit;
+        this.swapUsage = swapUsage;
+        this.cpuLimit = cpuLimit;
+    }
+
+    /**
+     * The memory the group may use, memory.max or memory.limit_in_bytes.
+     */
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * The memory the group uses, including the page cache.
+     */
+    public long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * The page cache of the group that the kernel reclaims first when the group reaches its
+     * limit, inactive_file or total_inactive_file of memory.stat.
+     */
+    public long getInactiveFileMemory() {
+        return inactiveFileMemory;
+    }
+
+    /**
+     * The swap space the group may use.
+     */
+    public long getSwapLimit() {
+        return swapLimit;
+    }
+
+    public long getSwapUsage() {
+        return swapUsage;
+    }
+
+    /**
+     * The number of CPUs the group may keep busy, from the CFS quota and period, which
+     * need not be a whole number; -1 without a quota.
+     */
+    public double getCpuLimit() {
+        return cpuLimit;
+    }
+
+    /**
+     * Caps the host's total memory by the limit of the group.
+     */
+    long capTotalMemory(long hostTotal) {
+        return memoryLimit < 0 ? hostTotal : Math.min(hostTotal, memoryLimit);
+    }
+
+    /**
+     * Caps the host's available memory by what is left of the limit of the group, counting
+     * the inactive page cache as available, like MemAvailable does for the host.
+     */
+    long capAvailableMemory(long hostAvailable) {
+        if (memoryLimit < 0 || memoryUsage < 0) {
+            return hostAvailable;
+        }
+        long used = memoryUsage - Math.max(0, Math.min(memoryUsage, inactiveFileMemory));
+        return Math.min(hostAvailable, Math.max(0, memoryLimit - used));
+    }
+
+    long capTotalSwap(long hostTotal) {
+        return swapLimit < 0 ? hostTotal : Math.min(hostTotal, swapLimit);
+    }
+
+    long capAvailableSwap(long hostAvailable) {
+        return swapLimit < 0 || swapUsage < 0 ? hostAvailable : Math.min(hostAvailable, Math.max(0, swapLimit - swapUsage));
+    }
+
+    @Override
+    public String toString() {
+        return "memory " + memoryUsage + "/" + memoryLimit + ", swap " + swapUsage + "/" + swapLimit + ", cpus " + cpuLimit;
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+import static org.hudsonci.plugins.jna.EpollLibrary.*;
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Tells when processes exit, with one thread for any number of them. The pidfds of the
+ * processes are watched with one epoll instance, a pidfd being readable once its process
+ * has exited. On kernels without pidfds the processes are checked at short intervals.
+ *
+ * <p>
+ * The exit status of a child of this JVM is read with waitid(2) without reaping the
+ * child, so that whoever waits for it, such as {@link Process#waitFor()}, still gets it.
+ * If that was faster, the status of a {@link Process} is taken from it.
+ * See {@link JnaNativeUnixSupport#getChildExitNotifier()}.
+ */
+public class ChildExitNotifier {
+
+    private static final Logger LOGGER = Logger.getLogger(ChildExitNotifier.class.getName());
+
+    private static final int MAX_EVENTS = 64;
+    // longest wait, so that close is noticed
+    private static final int MAX_WAIT_MILLIS = 1000;
+    // how often the processes without a pidfd are checked
+    private static final int FALLBACK_WAIT_MILLIS = 10;
+
+    private final int epollFd;
+    // by pidfd
+    private final Map<Integer, Watch> watches = new ConcurrentHashMap<Integer, Watch>();
+    private final List<Watch> fallbackWatches = new CopyOnWriteArrayList<Watch>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    public ChildExitNotifier() throws NativeAccessException {
+        try {
+            epollFd = EPOLL.epoll_create1(EPOLL_CLOEXEC);
+        } catch (LinkageError e) {
+            throw new NativeAccessException("epoll is not available. " + e.getLocalizedMessage());
+        }
+        if (epollFd < 0) {
+            throw new NativeAccessException("Failed to create epoll instance. " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        thread = new Thread(new Runnable() {
+
+            public void run() {
+                dispatch();
+            }
+        }, "Child exit notifier");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Watches the process.
+     *
+     * @return the future exit status of the process
+     */
+    public Future<ExitStatus> watch(int pid) throws NativeAccessException {
+        return watch(pid, null, null);
+    }
+
+    /**
+     * Watches the process and tells the listener when it exits.
+     *
+     * @return the future exit status of the process
+     */
+    public Future<ExitStatus> watch(int pid, ExitListener listener) throws NativeAccessException {
+        return watch(pid, null, listener);
+    }
+
+    /**
+     * Watches a process started by this JVM and tells the listener, which may be null,
+     * when it exits.
+     *
+     * @return the future exit status of the process
+     */
+    public Future<ExitStatus> watch(Process process, ExitListener listener) throws NativeAccessException {
+        return watch(getPid(process), process, listener);
+    }
+
+    private Future<ExitStatus> watch(int pid, Process process, ExitListener listener) throws NativeAccessException {
+        if (closed) {
+            throw new NativeAccessException("Child exit notifier is closed");
+        }
+        Watch watch = new Watch(pid, process, listener);
+        LinuxProcess linuxProcess = LinuxProcessTable.read(pid);
+        LinuxProcessHandle handle = linuxProcess != null ? LinuxProcessHandle.open(linuxProcess) : null;
+        if (handle == null) {
+            // gone already, or a zombie whose status can still be read
+            complete(watch);
+            return watch;
+        }
+        watch.handle = handle;
+        if (!handle.isPidfd()) {
+            fallbackWatches.add(watch);
+            return watch;
+        }
+        watches.put(handle.getFd(), watch);
+        Memory event = new Memory(SIZEOF_EPOLL_EVENT);
+        event.setInt(0, EPOLLIN);
+        event.setLong(EPOLL_EVENT_DATA, handle.getFd());
+        if (EPOLL.epoll_ctl(epollFd, EPOLL_CTL_ADD, handle.getFd(), event) != 0) {
+            int err = Native.getLastError();
+            watches.remove(handle.getFd());
+            handle.close();
+            throw new NativeAccessException("Failed to watch process " + pid + ". " + DirectGNUCLibrary.strerror(err));
+        }
+        return watch;
+    }
+
+    /**
+     * Number of processes watched that have not exited yet.
+     */
+    public int getWatchCount() {
+        return watches.size() + fallbackWatches.size();
+    }
+
+    /**
+     * Stops the thread. The processes still watched are completed with an error.
+     */
+    public void close() {
+        closed = true;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        List<Watch> pending = new ArrayList<Watch>(watches.values());
+        pending.addAll(fallbackWatches);
+        watches.clear();
+        fallbackWatches.clear();
+        for (Watch watch : pending) {
+            watch.handle.close();
+            watch.complete(null, "Child exit notifier was closed before process " + watch.pid + " exited");
+        }
+        DirectGNUCLibrary.close(epollFd);
+    }
+
+    private void dispatch() {
+        Memory events = new Memory(SIZEOF_EPOLL_EVENT * MAX_EVENTS);
+        Memory event = new Memory(SIZEOF_EPOLL_EVENT);
+        while (!closed) {
+            try {
+                int timeout = fallbackWatches.isEmpty() ? MAX_WAIT_MILLIS : FALLBACK_WAIT_MILLIS;
+                int n = EPOLL.epoll_wait(epollFd, events, MAX_EVENTS, timeout);
+                if (n < 0 && Native.getLastError() != EINTR) {
+                    LOGGER.log(Level.WARNING, "Child exit notifier failed. {0}", DirectGNUCLibrary.strerror(Native.getLastError()));
+                    return;
+                }
+                for (int i = 0; i < n; i++) {
+                    int fd = (int) events.getLong(i * SIZEOF_EPOLL_EVENT + EPOLL_EVENT_DATA);
+                    Watch watch = watches.remove(fd);
+                    if (watch != null) {
+                        EPOLL.epoll_ctl(epollFd, EPOLL_CTL_DEL, fd, event);
+                        watch.handle.close();
+                        complete(watch);
+                    }
+                }
+                for (Watch watch : fallbackWatches) {
+                    if (!watch.handle.isAlive()) {
+                        fallbackWatches.remove(watch);
+                        complete(watch);
+                    }
+                }
+            } catch (Throwable t) {
+                LOGGER.log(Level.WARNING, "Child exit notifier failed", t);
+            }
+        }
+    }
+
+    /**
+     * Completes the watch of a process that has exited.
+     */
+    private static void complete(Watch watch) {
+        ExitStatus status;
+        try {
+            status = readStatus(watch);
+        } catch (Throwable t) {
+            watch.complete(null, "Failed to read the exit status of process " + watch.pid + ". " + t.getLocalizedMessage());
+            return;
+        }
+        watch.complete(status, null);
+        if (watch.listener != null) {
+            try {
+                watch.listener.exited(status);
+            } catch (Throwable t) {
+                LOGGER.log(Level.WARNING, "Exit listener failed", t);
+            }
+        }
+    }
+
+    private static ExitStatus readStatus(Watch watch) throws InterruptedException {
+        Memory info = new Memory(SIZEOF_SIGINFO);
+        // left at 0 if the process has not exited
+        info.setInt(SIGINFO_PID, 0);
+        int r;
+        int err;
+        do {
+            r = LIBC.waitid(P_PID, watch.pid, info, WEXITED | WNOHANG | WNOWAIT);
+            err = r == 0 ? 0 : Native.getLastError();
+        } while (err == EINTR);
+        if (err != 0 && err != ECHILD) {
+            LOGGER.log(Level.WARNING, "Failed to wait for process {0}. {1}", new Object[]{watch.pid, DirectGNUCLibrary.strerror(err)});
+        }
+        if (r == 0 && info.getInt(SIGINFO_PID) == watch.pid) {
+            int code = info.getInt(SIGINFO_CODE);
+            int status = info.getInt(SIGINFO_STATUS);
+            if (code == CLD_EXITED) {
+                return new ExitStatus(watch.pid, status, 0);
+            }
+            if (code == CLD_KILLED || code == CLD_DUMPED) {
+                return new ExitStatus(watch.pid, -1, status);
+            }
+        }
+        // not a child, or reaped already (ECHILD), such as by the reaper thread of a Process, which
+        // reports a process killed by a signal as having exited with 128 + the signal
+        if (watch.process != null) {
+            return new ExitStatus(watch.pid, watch.process.waitFor(), 0);
+        }
+        return new ExitStatus(watch.pid, -1, 0);
+    }
+
+    private static int getPid(Process process) throws NativeAccessException {
+        try {
+            // Process.pid() since Java 9, the pid field of UNIXProcess before
+            try {
+                Method pid = Process.class.getMethod("pid");
+                return ((Number) pid.invoke(process)).intValue();
+            } catch (NoSuchMethodException e) {
+                Field pid = process.getClass().getDeclaredField("pid");
+                pid.setAccessible(true);
+                return pid.getInt(process);
+            }
+        } catch (Exception e) {
+            throw new NativeAccessException("Failed to get the pid of " + process + ". " + e.getLocalizedMessage());
+        }
+    }
+
+    private static class Watch implements Future<ExitStatus> {
+
+        final int pid;
+        final Process process;
+        final ExitListener listener;
+        LinuxProcessHandle handle;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile ExitStatus status;
+        private volatile String error;
+
+        Watch(int pid, Process process, ExitListener listener) {
+            this.pid = pid;
+            this.process = process;
+            this.listener = listener;
+        }
+
+        void complete(ExitStatus status, String error) {
+            this.status = status;
+            this.error = error;
+            done.countDown();
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        public ExitStatus get() throws InterruptedException, ExecutionException {
+            done.await();
+            return result();
+        }
+
+        public ExitStatus get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException("Process " + pid + " has not exited yet");
+            }
+            return result();
+        }
+
+        private ExitStatus result() throws ExecutionException {
+            if (error != null) {
+                throw new ExecutionException(new NativeAccessException(error));
+            }
+            return status;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+/**
+ * Options of {@link JnaNativeUnixSupport#copyFile(java.io.File, java.io.File, CopyOptions)}
+ * and {@link JnaNativeUnixSupport#copyTree(java.io.File, java.io.File, CopyOptions)}.
+ */
+public class CopyOptions {
+
+    private boolean preserveMode = true;
+    private boolean preserveOwnership;
+    private boolean overwrite = true;
+
+    /**
+     * Whether the copy gets the permission bits of the source. True by default, otherwise
+     * new files are created according to the umask.
+     */
+    public boolean isPreserveMode() {
+        return preserveMode;
+    }
+
+    public void setPreserveMode(boolean preserveMode) {
+        this.preserveMode = preserveMode;
+    }
+
+    /**
+     * Whether the copy gets the owner and group of the source, which normally needs root.
+     * False by default.
+     */
+    public boolean isPreserveOwnership() {
+        return preserveOwnership;
+    }
+
+    public void setPreserveOwnership(boolean preserveOwnership) {
+        this.preserveOwnership = preserveOwnership;
+    }
+
+    /**
+     * Whether existing files at the destination are replaced. True by default, otherwise
+     * copying onto an existing file fails.
+     */
+    public boolean isOverwrite() {
+        return overwrite;
+    }
+
+    public void setOverwrite(boolean overwrite) {
+        this.overwrite = overwrite;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Outcome of {@link JnaNativeUnixSupport#copyTree(File, File, CopyOptions)} and
+ * {@link JnaNativeUnixSupport#linkTree(File, File, java.io.FileFilter, CopyOptions)}
+ * and {@link JnaNativeUnixSupport#reflinkTree(File, File, boolean, CopyOptions)}.
+ */
+public class CopyResult {
+
+    private final long filesCopied;
+    private final long filesLinked;
+    private final long filesReflinked;
+    private final long bytesCopied;
+    private final List<FileOperationError> errors;
+
+    public CopyResult(long filesCopied, long filesLinked, long filesReflinked, long bytesCopied, List<FileOperationError> errors) {
+        this.filesCopied = filesCopied;
+        this.filesLinked = filesLinked;
+        this.filesReflinked = filesReflinked;
+        this.bytesCopied = bytesCopied;
+        this.errors = errors;
+    }
+
+    /**
+     * Number of regular files copied.
+     */
+    public long getFilesCopied() {
+        return filesCopied;
+    }
+
+    /**
+     * Number of files hard linked instead of copied.
+     */
+    public long getFilesLinked() {
+        return filesLinked;
+    }
+
+    /**
+     * Number of files cloned with a reflink, sharing their data with the source until
+     * either is written.
+     */
+    public long getFilesReflinked() {
+        return filesReflinked;
+    }
+
+    /**
+     * Number of bytes copied, which does not include linked or reflinked files.
+     */
+    public long getBytesCopied() {
+        return bytesCopied;
+    }
+
+    /**
+     * The files that could not be copied, empty if the whole tree was copied.
+     */
+    public List<FileOperationError> getErrors() {
+        return errors;
+    }
+
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Copied " + filesCopied + " files, " + bytesCopied + " bytes, linked " + filesLinked
+                + " files, reflinked " + filesReflinked + " files, " + errors.size() + " errors";
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Outcome of {@link JnaNativeUnixSupport#deleteRecursively(File)}.
+ */
+public class DeleteResult {
+
+    private final long bytesFreed;
+    private final long inodesFreed;
+    private final List<FileOperationError> errors;
+
+    public DeleteResult(long bytesFreed, long inodesFreed, List<FileOperationError> errors) {
+        this.bytesFreed = bytesFreed;
+        this.inodesFreed = inodesFreed;
+        this.errors = errors;
+    }
+
+    /**
+     * Disk space released, counting only files whose last link was removed.
+     */
+    public long getBytesFreed() {
+        return bytesFreed;
+    }
+
+    /**
+     * Number of files, directories and symlinks removed.
+     */
+    public long getInodesFreed() {
+        return inodesFreed;
+    }
+
+    /**
+     * The files that could not be deleted, empty if the whole tree is gone.
+     */
+    public List<FileOperationError> getErrors() {
+        return errors;
+    }
+
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Deleted " + inodesFreed + " files freeing " + bytesFreed + " bytes, " + errors.size() + " errors";
+    }
+}
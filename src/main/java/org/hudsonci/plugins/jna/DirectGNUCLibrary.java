@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.LIBC;
+
+/**
+ * The libc functions on the file permission and symlink hot paths, bound with JNA
+ * direct mapping ({@link Native#register(String)}) instead of the {@link GNUCLibrary}
+ * interface proxy, which saves the reflective dispatch and argument boxing of every call.
+ *
+ * <p>
+ * If the direct binding can not be registered on this platform, every method falls back
+ * to {@link GNUCLibrary#LIBC}, so callers should still recover from {@link LinkageError}
+ * the same way they do for {@link GNUCLibrary}.
+ */
+final class DirectGNUCLibrary {
+
+    private static final Logger LOGGER = Logger.getLogger(DirectGNUCLibrary.class.getName());
+
+    /**
+     * True if the direct binding is in use.
+     */
+    static final boolean DIRECT = register();
+
+    /**
+     * True if statx is bound directly. It is registered separately as it is missing
+     * from glibc before 2.28, which must not disable the rest of the binding.
+     */
+    static final boolean DIRECT_STATX = DIRECT && registerStatx();
+
+    private DirectGNUCLibrary() {
+    }
+
+    private static boolean register() {
+        try {
+            return Direct.REGISTERED;
+        } catch (Throwable t) {
+            LOGGER.log(Level.FINE, "Direct mapping of libc is not available, using the interface mapping", t);
+            return false;
+        }
+    }
+
+    private static boolean registerStatx() {
+        try {
+            return DirectStatx.REGISTERED;
+        } catch (Throwable t) {
+            LOGGER.log(Level.FINE, "statx is not available in this libc", t);
+            return false;
+        }
+    }
+
+    static int geteuid() {
+        return DIRECT ? Direct.geteuid() : LIBC.geteuid();
+    }
+
+    static int getegid() {
+        return DIRECT ? Direct.getegid() : LIBC.getegid();
+    }
+
+    static String strerror(int errno) {
+        return DIRECT ? Direct.strerror(errno) : LIBC.strerror(errno);
+    }
+
+    static int fcntl(int fd, int command, int flags) {
+        return DIRECT ? Direct.fcntl(fd, command, flags) : LIBC.fcntl(fd, command, flags);
+    }
+
+    static int chmod(String fileName, int mode) {
+        return DIRECT ? Direct.chmod(fileName, mode) : LIBC.chmod(fileName, mode);
+    }
+
+    static int chown(String fileName, int uid, int gid) {
+        return DIRECT ? Direct.chown(fileName, uid, gid) : LIBC.chown(fileName, uid, gid);
+    }
+
+    static int symlink(String oldname, String newname) {
+        return DIRECT ? Direct.symlink(oldname, newname) : LIBC.symlink(oldname, newname);
+    }
+
+    static int readlink(String filename, Memory buffer, NativeLong size) {
+        return DIRECT ? Direct.readlink(filename, buffer, size) : LIBC.readlink(filename, buffer, size);
+    }
+
+    static int readlinkat(int dirfd, String path, Memory buffer, NativeLong size) {
+        return DIRECT ? Direct.readlinkat(dirfd, path, buffer, size) : LIBC.readlinkat(dirfd, path, buffer, size);
+    }
+
+    static int openat(int dirfd, String path, int flags) {
+        return DIRECT ? Direct.openat(dirfd, path, flags) : LIBC.openat(dirfd, path, flags);
+    }
+
+    static int close(int fd) {
+        return DIRECT ? Direct.close(fd) : LIBC.close(fd);
+    }
+
+    static int fchmodat(int dirfd, String path, int mode, int flags) {
+        return DIRECT ? Direct.fchmodat(dirfd, path, mode, flags) : LIBC.fchmodat(dirfd, path, mode, flags);
+    }
+
+    static int fchownat(int dirfd, String path, int uid, int gid, int flags) {
+        return DIRECT ? Direct.fchownat(dirfd, path, uid, gid, flags) : LIBC.fchownat(dirfd, path, uid, gid, flags);
+    }
+
+    static int fchmod(int fd, int mode) {
+        return DIRECT ? Direct.fchmod(fd, mode) : LIBC.fchmod(fd, mode);
+    }
+
+    static int unlinkat(int dirfd, String path, int flags) {
+        return DIRECT ? Direct.unlinkat(dirfd, path, flags) : LIBC.unlinkat(dirfd, path, flags);
+    }
+
+    static int statx(int dirfd, String path, int flags, int mask, Pointer buffer) {
+        return DIRECT_STATX ? DirectStatx.statx(dirfd, path, flags, mask, buffer) : LIBC.statx(dirfd, path, flags, mask, buffer);
+    }
+
+    /**
+     * The native methods, kept in their own class so that a failure to register them
+     * only fails the initialization of this class.
+     */
+    private static final class Direct {
+
+        static final boolean REGISTERED;
+
+        static {
+            Native.register("c");
+            REGISTERED = true;
+        }
+
+        static native int geteuid();
+        static native int getegid();
+        static native String strerror(int errno);
+        static native int fcntl(int fd, int command, int flags);
+        static native int chmod(String fileName, int mode);
+        static native int chown(String fileName, int uid, int gid);
+        static native int symlink(String oldname, String newname);
+        static native int readlink(String filename, Pointer buffer, NativeLong size);
+        static native int readlinkat(int dirfd, String path, Pointer buffer, NativeLong size);
+        static native int openat(int dirfd, String path, int flags);
+        static native int close(int fd);
+        static native int fchmodat(int dirfd, String path, int mode, int flags);
+        static native int fchownat(int dirfd, String path, int uid, int gid, int flags);
+        static native int fchmod(int fd, int mode);
+        static native int unlinkat(int dirfd, String path, int flags);
+    }
+
+    private static final class DirectStatx {
+
+        static final boolean REGISTERED;
+
+        static {
+            Native.register("c");
+            REGISTERED = true;
+        }
+
+        static native int statx(int dirfd, String path, int flags, int mask, Pointer buffer);
+    }
+}
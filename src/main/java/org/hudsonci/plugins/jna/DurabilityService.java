@@ -0,0 +1,334 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Native;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Makes written files durable with group commit: the files that threads ask to sync
+ * within a short window are flushed together by one thread, each with fdatasync, or,
+ * when the batch is large, with one syncfs per file system. Many small writes, like the
+ * build records of a burst of builds, then cost far fewer flushes than syncing each
+ * file as it is written.
+ *
+ * <p>
+ * A file that was created or renamed into place also needs its directory synced for
+ * the name to be durable; pass the directory too. Linux only.
+ */
+public class DurabilityService {
+
+    private static final Logger LOGGER = Logger.getLogger(DurabilityService.class.getName());
+
+    /**
+     * Cleared if libc has no syncfs, batches are then always synced file by file.
+     */
+    private static volatile boolean syncfsAvailable = true;
+
+    private final long windowNanos;
+    private final int syncfsThreshold;
+    private List<SyncRequest> pending = new ArrayList<SyncRequest>();
+    private boolean closed;
+    private final Histogram batchSizes = new Histogram();
+    private final Histogram latencies = new Histogram();
+    private final Thread flusher;
+
+    /**
+     * @param windowMicros how long to collect files after the first one is requested
+     * @param syncfsThreshold number of distinct files from which the batch is flushed
+     * with syncfs rather than file by file
+     */
+    public DurabilityService(long windowMicros, int syncfsThreshold) {
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.syncfsThreshold = syncfsThreshold;
+        flusher = new Thread(new Runnable() {
+
+            public void run() {
+                flushLoop();
+            }
+        }, "Durability service flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Asks for the file, or directory, to be synced to disk with the next batch.
+     *
+     * @return completes once the data of the file is durable, or fails with
+     * a {@link NativeAccessException}
+     */
+    public Future<Void> sync(File file) {
+        SyncRequest request = new SyncRequest(file.getAbsoluteFile());
+        synchronized (this) {
+            if (closed) {
+                request.complete("Durability service is closed");
+                return request;
+            }
+            pending.add(request);
+            if (pending.size() == 1) {
+                notifyAll();
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Syncs the file with the next batch and waits until it is durable.
+     */
+    public void syncAndWait(File file) throws NativeAccessException, InterruptedException {
+        try {
+            sync(file).get();
+        } catch (ExecutionException e) {
+            throw (NativeAccessException) e.getCause();
+        }
+    }
+
+    /**
+     * Number of requests flushed per batch.
+     */
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    /**
+     * Microseconds from a request to the file being durable.
+     */
+    public Histogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Flushes what is pending and stops the flusher thread. Later requests fail.
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<SyncRequest> batch;
+            try {
+                synchronized (this) {
+                    while (pending.isEmpty() && !closed) {
+                        wait();
+                    }
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    // let the other writers of this burst join the batch
+                    long deadline = System.nanoTime() + windowNanos;
+                    long remaining;
+                    while (!closed && (remaining = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                    batch = pending;
+                    pending = new ArrayList<SyncRequest>();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                flush(batch);
+            } catch (Throwable t) {
+                LOGGER.log(Level.WARNING, "Failed to sync " + batch.size() + " files", t);
+                for (SyncRequest request : batch) {
+                    request.complete("Failed to sync " + request.file + ". " + t.getLocalizedMessage());
+                }
+            }
+        }
+    }
+
+    private void flush(List<SyncRequest> batch) {
+        batchSizes.record(batch.size());
+
+        // the same file may be requested by several threads, it is synced once
+        Map<File, List<SyncRequest>> byFile = new HashMap<File, List<SyncRequest>>();
+        for (SyncRequest request : batch) {
+            List<SyncRequest> requests = byFile.get(request.file);
+            if (requests == null) {
+                requests = new ArrayList<SyncRequest>(1);
+                byFile.put(request.file, requests);
+            }
+            requests.add(request);
+        }
+
+        boolean bySyncfs = syncfsAvailable && byFile.size() >= syncfsThreshold;
+        if (!bySyncfs) {
+            for (Map.Entry<File, List<SyncRequest>> entry : byFile.entrySet()) {
+                complete(entry.getValue(), fdatasync(entry.getKey()));
+            }
+            return;
+        }
+
+        // descriptor of one file per device, the only ones held until the end of the batch,
+        // and the requests waiting on that device
+        Map<Long, Integer> deviceFds = new HashMap<Long, Integer>();
+        Map<Long, List<SyncRequest>> byDevice = new HashMap<Long, List<SyncRequest>>();
+        try {
+            for (Map.Entry<File, List<SyncRequest>> entry : byFile.entrySet()) {
+                File file = entry.getKey();
+                int fd = DirectGNUCLibrary.openat(AT_FDCWD, file.getPath(), O_RDONLY | O_NONBLOCK | O_CLOEXEC);
+                if (fd < 0) {
+                    complete(entry.getValue(), Native.getLastError());
+                    continue;
+                }
+                NativeFileStat stat = NativeFileStat.current();
+                int err = stat.statFd(fd, file);
+                Long device = stat.getDevice();
+                if (err != 0 || deviceFds.containsKey(device)) {
+                    DirectGNUCLibrary.close(fd);
+                } else {
+                    deviceFds.put(device, fd);
+                }
+                if (err != 0) {
+                    complete(entry.getValue(), err);
+                    continue;
+                }
+                List<SyncRequest> requests = byDevice.get(device);
+                if (requests == null) {
+                    requests = new ArrayList<SyncRequest>();
+                    byDevice.put(device, requests);
+                }
+                requests.addAll(entry.getValue());
+            }
+
+            for (Map.Entry<Long, List<SyncRequest>> entry : byDevice.entrySet()) {
+                int fd = deviceFds.get(entry.getKey());
+                int err = syncfs(fd);
+                if (err == ENOSYS) {
+                    // fall back to the files one by one
+                    for (SyncRequest request : entry.getValue()) {
+                        complete(request, fdatasync(request.file));
+                    }
+                } else {
+                    complete(entry.getValue(), err);
+                }
+            }
+        } finally {
+            for (int fd : deviceFds.values()) {
+                DirectGNUCLibrary.close(fd);
+            }
+        }
+    }
+
+    private static int syncfs(int fd) {
+        try {
+            return LIBC.syncfs(fd) == 0 ? 0 : Native.getLastError();
+        } catch (LinkageError e) {
+            syncfsAvailable = false;
+            return ENOSYS;
+        }
+    }
+
+    private static int fdatasync(File file) {
+        int fd = DirectGNUCLibrary.openat(AT_FDCWD, file.getPath(), O_RDONLY | O_NONBLOCK | O_CLOEXEC);
+        if (fd < 0) {
+            return Native.getLastError();
+        }
+        int err = LIBC.fdatasync(fd) == 0 ? 0 : Native.getLastError();
+        DirectGNUCLibrary.close(fd);
+        return err;
+    }
+
+    private void complete(List<SyncRequest> requests, int err) {
+        for (SyncRequest request : requests) {
+            complete(request, err);
+        }
+    }
+
+    private void complete(SyncRequest request, int err) {
+        latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - request.start));
+        request.complete(err == 0 ? null : "Failed to sync " + request.file + ". " + DirectGNUCLibrary.strerror(err));
+    }
+
+    private static class SyncRequest implements Future<Void> {
+
+        final File file;
+        final long start = System.nanoTime();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile String error;
+
+        SyncRequest(File file) {
+            this.file = file;
+        }
+
+        void complete(String error) {
+            this.error = error;
+            done.countDown();
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        public Void get() throws InterruptedException, ExecutionException {
+            done.await();
+            return result();
+        }
+
+        public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException("Sync of " + file + " is not done yet");
+            }
+            return result();
+        }
+
+        private Void result() throws ExecutionException {
+            if (error != null) {
+                throw new ExecutionException(new NativeAccessException(error));
+            }
+            return null;
+        }
+    }
+}
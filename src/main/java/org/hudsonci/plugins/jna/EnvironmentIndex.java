@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the processes of a {@link ProcessTableSnapshot} by the value of one
+ * environment variable, such as the cookie variable set for the processes of a build.
+ * It is updated with the processes added and removed by each refresh of the snapshot,
+ * so the environment of a process is only looked at once.
+ *
+ * @see ProcessTableSnapshot#getEnvironmentIndex(String)
+ */
+public class EnvironmentIndex {
+
+    private static final int[] NO_PIDS = new int[0];
+
+    private final String name;
+    // the sorted pids of each value
+    private final Map<String, int[]> pidsByValue = new HashMap<String, int[]>();
+    private final Map<Integer, String> valueByPid = new HashMap<Integer, String>();
+
+    EnvironmentIndex(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The name of the indexed variable.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The pids of the processes whose variable has the value, in ascending order.
+     */
+    public synchronized int[] getPids(String value) {
+        int[] pids = pidsByValue.get(value);
+        return pids != null ? pids.clone() : NO_PIDS;
+    }
+
+    /**
+     * The number of indexed processes, those that have the variable.
+     */
+    public synchronized int size() {
+        return valueByPid.size();
+    }
+
+    synchronized void update(List<LinuxProcess> added, List<LinuxProcess> removed) {
+        // a reused pid is both removed and added, the removal comes first
+        for (LinuxProcess process : removed) {
+            String value = valueByPid.remove(process.getPid());
+            if (value != null) {
+                int[] pids = pidsByValue.get(value);
+                int i = Arrays.binarySearch(pids, process.getPid());
+                if (pids.length == 1) {
+                    pidsByValue.remove(value);
+                } else {
+                    int[] rest = new int[pids.length - 1];
+                    System.arraycopy(pids, 0, rest, 0, i);
+                    System.arraycopy(pids, i + 1, rest, i, rest.length - i);
+                    pidsByValue.put(value, rest);
+                }
+            }
+        }
+        for (LinuxProcess process : added) {
+            String value = process.getEnvironmentVariable(name);
+            if (value != null && !valueByPid.containsKey(process.getPid())) {
+                valueByPid.put(process.getPid(), value);
+                int[] pids = pidsByValue.get(value);
+                if (pids == null) {
+                    pids = NO_PIDS;
+                }
+                int i = -Arrays.binarySearch(pids, process.getPid()) - 1;
+                int[] more = new int[pids.length + 1];
+                System.arraycopy(pids, 0, more, 0, i);
+                more[i] = process.getPid();
+                System.arraycopy(pids, i, more, i + 1, pids.length - i);
+                pidsByValue.put(value, more);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+/**
+ * Linux epoll API, see http://man7.org/linux/man-pages/man7/epoll.7.html
+ *
+ * <p>
+ * A struct epoll_event is {@code uint32_t events; uint64_t data;}, packed on x86_64 only,
+ * hence the architecture dependent size and offset below. The data field is used to hold
+ * the descriptor.
+ */
+public interface EpollLibrary extends Library {
+
+    int epoll_create1(int flags);
+
+    int epoll_ctl(int epfd, int op, int fd, Pointer event);
+
+    int epoll_wait(int epfd, Pointer events, int maxevents, int timeout);
+
+    static final int EPOLL_CLOEXEC = 02000000;
+
+    static final int EPOLL_CTL_ADD = 1;
+    static final int EPOLL_CTL_DEL = 2;
+    static final int EPOLL_CTL_MOD = 3;
+
+    static final int EPOLLIN = 0x001;
+    static final int EPOLLRDHUP = 0x2000;
+    static final int EPOLLONESHOT = 1 << 30;
+
+    static final boolean PACKED_EVENT = System.getProperty("os.arch", "").equals("amd64")
+            || System.getProperty("os.arch", "").equals("x86_64");
+    static final int SIZEOF_EPOLL_EVENT = PACKED_EVENT ? 12 : 16;
+    static final int EPOLL_EVENT_DATA = PACKED_EVENT ? 4 : 8;
+
+    public static final EpollLibrary EPOLL = (EpollLibrary) Native.loadLibrary("c", EpollLibrary.class);
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+/**
+ * How a process ended, as reported by a {@link ChildExitNotifier}.
+ */
+public final class ExitStatus {
+
+    private final int pid;
+    private final int exitCode;
+    private final int signal;
+
+    /**
+     * @param exitCode the exit code, or -1 if the process was killed by a signal or it is unknown
+     * @param signal the signal that killed the process, or 0
+     */
+    public ExitStatus(int pid, int exitCode, int signal) {
+        this.pid = pid;
+        this.exitCode = exitCode;
+        this.signal = signal;
+    }
+
+    public int getPid() {
+        return pid;
+    }
+
+    /**
+     * The exit code, or -1 if the process was killed by a signal or the status is unknown.
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * The signal that killed the process, or 0 if it exited.
+     */
+    public int getSignal() {
+        return signal;
+    }
+
+    /**
+     * Tells whether the status is known. It is not for processes that are not children of
+     * this JVM, or that were reaped before their status was read.
+     */
+    public boolean isKnown() {
+        return exitCode >= 0 || signal > 0;
+    }
+
+    @Override
+    public String toString() {
+        if (signal > 0) {
+            return "process " + pid + " killed by signal " + signal;
+        }
+        return exitCode >= 0 ? "process " + pid + " exited with " + exitCode : "process " + pid + " exited";
+    }
+}
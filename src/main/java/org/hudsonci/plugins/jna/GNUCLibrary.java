@@ -44,6 +44,7 @@ import org.jvnet.libpam.impl.CLibrary.passwd;
 public interface GNUCLibrary extends Library {
     int fork();
     int kill(int pid, int signum);
+    int setpriority(int which, int who, int prio);
     int setsid();
     int umask(int mask);
     int getpid();
@@ -68,6 +69,7 @@ public interface GNUCLibrary extends Library {
     static final int F_GETFD = 1;
     static final int F_SETFD = 2;
     static final int FD_CLOEXEC = 1;
+    static final int F_DUPFD_CLOEXEC = 1030;
 
     int chown(String fileName, int uid, int gid);
     int chmod(String fileName, int i);
@@ -75,6 +77,16 @@ public interface GNUCLibrary extends Library {
     // see http://www.gnu.org/s/libc/manual/html_node/Renaming-Files.html
     int rename(String oldname, String newname);
 
+    /**
+     * Linux renameat2(2), only in glibc 2.28 and later, otherwise use {@link #syscall}
+     * with {@link LinuxSyscall#RENAMEAT2}. Kernels before 3.15, and some file systems,
+     * do not support the flags.
+     */
+    int renameat2(int olddirfd, String oldpath, int newdirfd, String newpath, int flags);
+
+    static final int RENAME_NOREPLACE = 1;
+    static final int RENAME_EXCHANGE = 2;
+
 
     // this is listed in http://developer.apple.com/DOCUMENTATION/Darwin/Reference/ManPages/man3/sysctlbyname.3.html
     // but not in http://www.gnu.org/software/libc/manual/html_node/System-Parameters.html#index-sysctl-3493
@@ -92,6 +104,11 @@ public interface GNUCLibrary extends Library {
      */
     int symlink(String oldname, String newname);
 
+    /**
+     * Linux symlinkat(2), creates {@code linkpath} relative to {@code newdirfd}.
+     */
+    int symlinkat(String target, int newdirfd, String linkpath);
+
     /**
      * Read a symlink. The name will be copied into the specified memory, and returns the number of
      * bytes copied. The string is not null-terminated.
@@ -102,5 +119,224 @@ public interface GNUCLibrary extends Library {
      */
     int readlink(String filename, Memory buffer, NativeLong size);
 
+    // *at() family, used to operate on directory entries relative to an already open directory
+    // descriptor instead of making the kernel resolve the full path for every file.
+    // see http://man7.org/linux/man-pages/man2/openat.2.html
+    int open(String path, int flags);
+    int openat(int dirfd, String path, int flags);
+    int openat(int dirfd, String path, int flags, int mode);
+    int close(int fd);
+    int fchmodat(int dirfd, String path, int mode, int flags);
+    int fchownat(int dirfd, String path, int uid, int gid, int flags);
+    int fchmod(int fd, int mode);
+    int fchown(int fd, int uid, int gid);
+    int mkdirat(int dirfd, String path, int mode);
+    int linkat(int olddirfd, String oldpath, int newdirfd, String newpath, int flags);
+    int unlinkat(int dirfd, String path, int flags);
+
+    /**
+     * Like {@link #readlink(String, Memory, NativeLong)} but relative to the directory
+     * descriptor {@code dirfd}.
+     */
+    int readlinkat(int dirfd, String path, Memory buffer, NativeLong size);
+
+    /**
+     * Linux statx(2), available from glibc 2.28. Unlike struct stat, struct statx has the
+     * same layout on every architecture. See {@link NativeFileStat} for the fields used.
+     */
+    int statx(int dirfd, String path, int flags, int mask, Pointer buffer);
+
+    static final int STATX_BASIC_STATS = 0x7ff;
+
+    /**
+     * Tells the kernel how a range of the file will be read, a length of 0 meaning up to
+     * the end. Returns the error number rather than setting errno. Takes 64 bit offsets on
+     * every architecture.
+     */
+    int posix_fadvise64(int fd, long offset, long length, int advice);
+
+    static final int POSIX_FADV_SEQUENTIAL = 2;
+    static final int POSIX_FADV_WILLNEED = 3;
+    static final int POSIX_FADV_DONTNEED = 4;
+
+    /**
+     * Maps a file into memory, returning its address or -1 (MAP_FAILED). Takes a 64 bit
+     * offset on every architecture.
+     */
+    NativeLong mmap64(Pointer address, NativeLong length, int prot, int flags, int fd, long offset);
+    int munmap(Pointer address, NativeLong length);
+
+    static final int PROT_READ = 1;
+    static final int MAP_SHARED = 1;
+
+    long lseek64(int fd, long offset, int whence);
+
+    static final int SEEK_SET = 0;
+    static final int SEEK_END = 2;
+
+    /**
+     * Linux pipe2(2), {@code fds} receives the reading and the writing end.
+     */
+    int pipe2(int[] fds, int flags);
+
+    int fdatasync(int fd);
+
+    /**
+     * Linux syncfs(2), flushes the whole file system {@code fd} is on. Only reports
+     * write errors since Linux 5.8.
+     */
+    int syncfs(int fd);
+
+    int read(int fd, Pointer buffer, NativeLong size);
+    NativeLong write(int fd, Pointer buffer, NativeLong size);
+
+    /**
+     * Copies between two files inside the kernel, see http://man7.org/linux/man-pages/man2/copy_file_range.2.html
+     * Only in glibc 2.27 and later. Pass null offsets to use and advance the file offsets.
+     */
+    NativeLong copy_file_range(int fdIn, Pointer offIn, int fdOut, Pointer offOut, NativeLong length, int flags);
+
+    /**
+     * Copies from {@code inFd} to {@code outFd} inside the kernel. Older kernels require
+     * {@code outFd} to be a socket.
+     */
+    NativeLong sendfile(int outFd, int inFd, Pointer offset, NativeLong count);
+
+    /**
+     * Only used with {@link #FICLONE}, which makes {@code fd} share the extents of the
+     * file open as {@code arg}, on file systems that support it like btrfs and XFS.
+     */
+    int ioctl(int fd, NativeLong request, int arg);
+
+    // _IOW(0x94, 9, int), the same on every architecture
+    static final NativeLong FICLONE = new NativeLong(0x40049409L);
+
+    /**
+     * Reads directory entries as struct linux_dirent64, see {@link NativeDirectoryReader}.
+     * Only in glibc 2.30 and later, otherwise use {@link #syscall} with {@link LinuxSyscall#GETDENTS64}.
+     */
+    NativeLong getdents64(int fd, Pointer buffer, NativeLong size);
+
+    /**
+     * Takes over {@code fd} for {@link #readdir64}, where getdents64 is not available.
+     */
+    Pointer fdopendir(int fd);
+
+    /**
+     * Returns the next entry as a struct dirent64, which is laid out like struct
+     * linux_dirent64, or null at the end.
+     */
+    Pointer readdir64(Pointer dir);
+
+    int closedir(Pointer dir);
+
+    /**
+     * Makes a system call by number, see {@link LinuxSyscall}. The arguments must be
+     * {@link NativeLong}s, {@link Pointer}s or Strings, so that they are passed as C longs.
+     */
+    NativeLong syscall(NativeLong number, Object... args);
+
+    /**
+     * Waits for events on the descriptors in {@code fds}, an array of struct pollfd
+     * ({@code int fd; short events; short revents;}).
+     */
+    int poll(Pointer fds, int nfds, int timeout);
+
+    /**
+     * Waits for a child to change state, see http://man7.org/linux/man-pages/man2/waitid.2.html
+     * The {@code infop} buffer is a siginfo_t, of {@link #SIZEOF_SIGINFO} bytes.
+     */
+    int waitid(int idtype, int id, Pointer infop, int options);
+
+    int waitpid(int pid, IntByReference status, int options);
+
+    /**
+     * posix_spawnp(3), returns 0 or the errno. {@code fileActions} is a
+     * posix_spawn_file_actions_t of at least {@link #SIZEOF_SPAWN_FILE_ACTIONS} bytes.
+     */
+    int posix_spawnp(IntByReference pid, String file, Pointer fileActions, Pointer attributes, String[] argv, String[] envp);
+
+    int posix_spawn_file_actions_init(Pointer fileActions);
+
+    int posix_spawn_file_actions_destroy(Pointer fileActions);
+
+    int posix_spawn_file_actions_adddup2(Pointer fileActions, int fd, int newfd);
+
+    int posix_spawn_file_actions_addopen(Pointer fileActions, int fd, String path, int flags, int mode);
+
+    /**
+     * Only in glibc 2.29 and later.
+     */
+    int posix_spawn_file_actions_addchdir_np(Pointer fileActions, String path);
+
+    // 80 bytes on 64 bit glibc, with room to spare
+    static final int SIZEOF_SPAWN_FILE_ACTIONS = 128;
+
+    static final int POLLIN = 0x1;
+    static final int SIZEOF_POLLFD = 8;
+
+    // obtained from asm/fcntl.h of Linux/x86 and the other asm-generic architectures, and
+    // of ARM and PowerPC, which have their own O_DIRECTORY and O_NOFOLLOW. Others, like
+    // MIPS, SPARC and Alpha, differ in more flags and are not supported.
+    static final String ARCH = System.getProperty("os.arch", "");
+    static final boolean ARM = ARCH.startsWith("aarch64") || ARCH.startsWith("arm");
+    static final boolean PPC = ARCH.startsWith("ppc") || ARCH.startsWith("powerpc");
+    static final boolean OPEN_FLAGS_KNOWN = ARM || PPC || ARCH.equals("amd64") || ARCH.equals("x86_64")
+            || ARCH.equals("x86") || ARCH.matches("i[3-6]86") || ARCH.equals("s390x") || ARCH.equals("riscv64")
+            || ARCH.equals("loongarch64");
+    static final int O_RDONLY = 0;
+    static final int O_WRONLY = 1;
+    static final int O_CREAT = 0100;
+    static final int O_EXCL = 0200;
+    static final int O_TRUNC = 01000;
+    static final int O_NONBLOCK = 04000;
+    static final int O_DIRECTORY = ARM || PPC ? 040000 : 0200000;
+    static final int O_NOFOLLOW = ARM || PPC ? 0100000 : 0400000;
+    static final int O_CLOEXEC = 02000000;
+    static final int O_PATH = 010000000;
+    static final int AT_FDCWD = -100;
+    static final int AT_SYMLINK_NOFOLLOW = 0x100;
+    static final int AT_REMOVEDIR = 0x200;
+    static final int AT_EMPTY_PATH = 0x1000;
+
+    // errno values used to tell entry types apart
+    static final int EINTR = 4;
+    static final int EAGAIN = 11;
+    static final int ENOENT = 2;
+    static final int EPERM = 1;
+    static final int ESRCH = 3;
+    static final int ENOSYS = 38;
+    static final int EACCES = 13;
+    static final int EINVAL = 22;
+    static final int ENOTEMPTY = 39;
+    static final int EEXIST = 17;
+    static final int EXDEV = 18;
+    static final int ENOTTY = 25;
+    static final int ENOSPC = 28;
+    static final int EMLINK = 31;
+    static final int EOPNOTSUPP = 95;
+    static final int ECHILD = 10;
+    static final int ENOTDIR = 20;
+    static final int ELOOP = 40;
+
+    static final int SIGKILL = 9;
+    static final int SIGTERM = 15;
+    static final int SIGCONT = 18;
+    static final int SIGSTOP = 19;
+    static final int PRIO_PROCESS = 0;
+
+    // waitid(2), the siginfo_t fields are aligned to a pointer after the first three ints
+    static final int P_PID = 1;
+    static final int WNOHANG = 1;
+    static final int WEXITED = 4;
+    static final int WNOWAIT = 0x01000000;
+    static final int SIZEOF_SIGINFO = 128;
+    static final int SIGINFO_CODE = 8;
+    static final int SIGINFO_PID = Native.POINTER_SIZE == 8 ? 16 : 12;
+    static final int SIGINFO_STATUS = SIGINFO_PID + 8;
+    static final int CLD_EXITED = 1;
+    static final int CLD_KILLED = 2;
+    static final int CLD_DUMPED = 3;
+
     public static final GNUCLibrary LIBC = (GNUCLibrary) Native.loadLibrary("c",GNUCLibrary.class);
 }
@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+
+/**
+ * Linux inotify API, see http://man7.org/linux/man-pages/man7/inotify.7.html
+ *
+ * <p>
+ * Events are read from the descriptor with {@link GNUCLibrary#read}. Each is a
+ * struct inotify_event ({@code int wd; uint32_t mask; uint32_t cookie; uint32_t len; char name[len];}).
+ */
+public interface InotifyLibrary extends Library {
+
+    int inotify_init1(int flags);
+
+    int inotify_add_watch(int fd, String path, int mask);
+
+    int inotify_rm_watch(int fd, int wd);
+
+    static final int IN_NONBLOCK = 04000;
+    static final int IN_CLOEXEC = 02000000;
+
+    static final int IN_MODIFY = 0x00000002;
+    static final int IN_ATTRIB = 0x00000004;
+    static final int IN_CLOSE_WRITE = 0x00000008;
+    static final int IN_MOVED_FROM = 0x00000040;
+    static final int IN_MOVED_TO = 0x00000080;
+    static final int IN_CREATE = 0x00000100;
+    static final int IN_DELETE = 0x00000200;
+    static final int IN_DELETE_SELF = 0x00000400;
+    static final int IN_MOVE_SELF = 0x00000800;
+    static final int IN_Q_OVERFLOW = 0x00004000;
+    static final int IN_IGNORED = 0x00008000;
+    static final int IN_ONLYDIR = 0x01000000;
+    static final int IN_DONT_FOLLOW = 0x02000000;
+    static final int IN_ISDIR = 0x40000000;
+
+    static final int SIZEOF_INOTIFY_EVENT = 16;
+
+    public static final InotifyLibrary INOTIFY = (InotifyLibrary) Native.loadLibrary("c", InotifyLibrary.class);
+}
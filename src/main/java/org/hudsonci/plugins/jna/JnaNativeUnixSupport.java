@@ -28,19 +28,28 @@ import com.sun.akuma.JavaVMArguments;
 import com.sun.jna.Memory;
 import com.sun.jna.Native;
 import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
 import com.sun.jna.StringArray;
 import hudson.Extension;
 import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.hudson.jna.*;
 import static org.hudsonci.plugins.jna.GNUCLibrary.*;
 import org.jruby.ext.posix.FileStat;
 import org.jruby.ext.posix.Group;
 import org.jruby.ext.posix.POSIX;
 import org.jruby.ext.posix.Passwd;
-import org.jvnet.hudson.MemoryMonitor;
-import org.jvnet.hudson.MemoryUsage;
 import org.jvnet.libpam.PAM;
 import org.jvnet.libpam.UnixUser;
 import org.jvnet.libpam.impl.CLibrary;
@@ -56,6 +65,54 @@ public class JnaNativeUnixSupport extends NativeUnixSupport {
 
     private transient Logger logger = LoggerFactory.getLogger(JnaNativeUnixSupport.class);
 
+    private static ExecutorService treeExecutor;
+
+    /**
+     * Number of symlink targets to cache, 0 to disable the cache.
+     */
+    private static final int SYMLINK_CACHE_SIZE = Integer.getInteger(JnaNativeUnixSupport.class.getName() + ".symlinkCacheSize", 0);
+
+    private static volatile SymlinkCache symlinkCache;
+    private static volatile boolean symlinkCacheFailed;
+
+    /**
+     * Group commit window of the durability service, in microseconds.
+     */
+    private static final long SYNC_WINDOW = Long.getLong(JnaNativeUnixSupport.class.getName() + ".syncWindow", 2000);
+    /**
+     * Number of files from which the durability service flushes whole file systems.
+     */
+    private static final int SYNCFS_THRESHOLD = Integer.getInteger(JnaNativeUnixSupport.class.getName() + ".syncfsThreshold", 64);
+
+    private static DurabilityService durabilityService;
+
+    /**
+     * Number of threads pumping the output of processes.
+     */
+    private static final int PIPE_REACTOR_THREADS = Integer.getInteger(JnaNativeUnixSupport.class.getName() + ".pipeReactorThreads", 2);
+
+    private static PipeReactor pipeReactor;
+
+    private static ProcessTableSnapshot processTable;
+
+    private static ChildExitNotifier childExitNotifier;
+
+    /**
+     * Milliseconds between two samples of the system memory, and number of samples kept.
+     */
+    private static final long SYSTEM_MEMORY_SAMPLE_PERIOD = Long.getLong(JnaNativeUnixSupport.class.getName() + ".systemMemorySamplePeriod", 5000);
+    private static final int SYSTEM_MEMORY_HISTORY = Integer.getInteger(JnaNativeUnixSupport.class.getName() + ".systemMemoryHistory", 720);
+
+    private static SystemMemorySampler systemMemorySampler;
+
+    private static final ThreadLocal<SymlinkBuffer> SYMLINK_BUFFER = new ThreadLocal<SymlinkBuffer>() {
+
+        @Override
+        protected SymlinkBuffer initialValue() {
+            return new SymlinkBuffer();
+        }
+    };
+
     @DataBoundConstructor
     public JnaNativeUnixSupport() {
     }
@@ -95,15 +152,59 @@ public class JnaNativeUnixSupport extends NativeUnixSupport {
         return false;
     }
 
+    /**
+     * Tells whether a function beyond the Hudson {@link NativeFunction}s is available.
+     */
+    public boolean hasSupportFor(UnixNativeFunction nativeFunc) {
+        switch (nativeFunc) {
+            case DELETE_RECURSIVELY:
+                return isLinuxWithKnownFlags();
+            case DIRECTORY_READER:
+                return isLinuxWithKnownFlags();
+            case COPY_FILE:
+                return isLinuxWithKnownFlags();
+            case LINK_TREE:
+                return isLinuxWithKnownFlags();
+            case REFLINK_TREE:
+                return isLinuxWithKnownFlags();
+            case ATOMIC_RENAME:
+                return NativeRename.isAtomic();
+            case DURABILITY_SERVICE:
+                return isLinuxWithKnownFlags();
+            case SEQUENTIAL_READ:
+                return isLinuxWithKnownFlags();
+            case LOG_TAILER:
+                return isLinuxWithKnownFlags();
+            case WATCH_SERVICE:
+                return isLinuxWithKnownFlags();
+            case PIPE_REACTOR:
+                return isLinuxWithKnownFlags();
+            case PROCESS_LIST:
+                return isLinuxWithKnownFlags();
+            case PROCESS_HANDLE:
+                return isLinuxWithKnownFlags();
+            case CHILD_EXIT_NOTIFIER:
+                return isLinuxWithKnownFlags();
+        }
+        return false;
+    }
+
+    /**
+     * Linux on an architecture whose open flags in {@link GNUCLibrary} are known to be right.
+     */
+    private static boolean isLinuxWithKnownFlags() {
+        return Platform.isLinux() && GNUCLibrary.OPEN_FLAGS_KNOWN;
+    }
+
     @Override
     public String getLastError() {
-        return LIBC.strerror(Native.getLastError());
+        return DirectGNUCLibrary.strerror(Native.getLastError());
     }
 
     @Override
     public boolean chmod(File file, int mask) {
         try {
-            return LIBC.chmod(file.getAbsolutePath(), mask) == 0;
+            return DirectGNUCLibrary.chmod(file.getAbsolutePath(), mask) == 0;
         } catch (LinkageError e) {
             // if JNA is unavailable, fall back.
             // we still prefer to try JNA first as PosixAPI supports even smaller platforms.
@@ -119,31 +220,738 @@ public class JnaNativeUnixSupport extends NativeUnixSupport {
     @Override
     public boolean chown(File file, int uid, int gid) {
         try {
-            return LIBC.chown(file.getPath(), uid, gid) == 0;
+            return DirectGNUCLibrary.chown(file.getPath(), uid, gid) == 0;
         } catch (Throwable ex) {
             throw new NativeAccessException("Failed to do chown. " + ex.getLocalizedMessage());
         }
     }
 
+    /**
+     * Changes the mode of every file and directory under {@code root}, including root itself.
+     * Each directory is opened once and its entries are changed relative to it, so the kernel
+     * does not resolve the full path of every file. Symbolic links are neither followed nor changed.
+     *
+     * @param modeFunction gives the mode for each file
+     * @return the files that could not be changed, empty if all succeeded
+     */
+    public List<FileOperationError> chmodAll(File root, final ModeFunction modeFunction) throws NativeAccessException {
+        try {
+            if (!isLinuxWithKnownFlags()) {
+                List<FileOperationError> errors = new ArrayList<FileOperationError>();
+                chmodAllFallback(root, modeFunction, errors);
+                return errors;
+            }
+            return new NativeTreeWalker(new NativeTreeWalker.Visitor() {
+
+                public int visit(int dirFd, String name, File file, int type) {
+                    if (type == NativeTreeWalker.TYPE_SYMLINK) {
+                        return 0;
+                    }
+                    int mask = modeFunction.getMode(file, type == NativeTreeWalker.TYPE_DIRECTORY);
+                    if (mask < 0 || DirectGNUCLibrary.fchmodat(dirFd, name, mask, 0) == 0) {
+                        return 0;
+                    }
+                    return Native.getLastError();
+                }
+            }).walk(root);
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to do chmod on " + root + ". " + ex.getLocalizedMessage());
+        }
+    }
+
+    private void chmodAllFallback(File file, ModeFunction modeFunction, List<FileOperationError> errors) throws IOException {
+        if (isSymlink(file)) {
+            return;
+        }
+        boolean directory = file.isDirectory();
+        int mask = modeFunction.getMode(file, directory);
+        if (mask >= 0 && !chmod(file, mask)) {
+            errors.add(new FileOperationError(file, Native.getLastError(), getLastError()));
+        }
+        File[] children = directory ? file.listFiles() : null;
+        if (children != null) {
+            for (File child : children) {
+                chmodAllFallback(child, modeFunction, errors);
+            }
+        }
+    }
+
+    /**
+     * Changes the owner of every file, directory and symbolic link under {@code root},
+     * including root itself. Each directory is opened once and its entries are changed
+     * relative to it. Symbolic links are not followed.
+     *
+     * @return the files that could not be changed, empty if all succeeded
+     */
+    public List<FileOperationError> chownTree(File root, final int uid, final int gid) throws NativeAccessException {
+        try {
+            if (!isLinuxWithKnownFlags()) {
+                List<FileOperationError> errors = new ArrayList<FileOperationError>();
+                chownTreeFallback(root, uid, gid, errors);
+                return errors;
+            }
+            return new NativeTreeWalker(new NativeTreeWalker.Visitor() {
+
+                public int visit(int dirFd, String name, File file, int type) {
+                    if (DirectGNUCLibrary.fchownat(dirFd, name, uid, gid, AT_SYMLINK_NOFOLLOW) == 0) {
+                        return 0;
+                    }
+                    return Native.getLastError();
+                }
+            }).walk(root);
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to do chown on " + root + ". " + ex.getLocalizedMessage());
+        }
+    }
+
+    private void chownTreeFallback(File file, int uid, int gid, List<FileOperationError> errors) throws IOException {
+        if (isSymlink(file)) {
+            return;
+        }
+        if (!chown(file, uid, gid)) {
+            errors.add(new FileOperationError(file, Native.getLastError(), getLastError()));
+        }
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                chownTreeFallback(child, uid, gid, errors);
+            }
+        }
+    }
+
+    /**
+     * Adds u+w to every file and u+rwx to every directory under {@code root}, including root
+     * itself, so that the tree can be deleted. Each entry's mode is checked with a stat relative
+     * to its directory and only entries that lack the permission are changed. Subdirectories are
+     * processed in parallel. Symbolic links are neither followed nor changed.
+     *
+     * @return the files that could not be changed, empty if all succeeded
+     */
+    public List<FileOperationError> makeTreeWritable(File root) throws NativeAccessException {
+        try {
+            if (!isLinuxWithKnownFlags()) {
+                List<FileOperationError> errors = new ArrayList<FileOperationError>();
+                makeTreeWritableFallback(root, errors);
+                return errors;
+            }
+            return new NativeTreeWalker(new NativeTreeWalker.Visitor() {
+
+                public int visit(int dirFd, String name, File file, int type) {
+                    if (type == NativeTreeWalker.TYPE_SYMLINK) {
+                        return 0;
+                    }
+                    int required = type == NativeTreeWalker.TYPE_DIRECTORY ? 0700 : 0200;
+                    NativeFileStat stat = NativeFileStat.current();
+                    int err = stat.statAt(dirFd, name, file, false);
+                    if (err != 0) {
+                        return err;
+                    }
+                    int mode = stat.getMode();
+                    if ((mode & required) == required || stat.isSymlink()) {
+                        return 0;
+                    }
+                    if (DirectGNUCLibrary.fchmodat(dirFd, name, (mode | required) & 07777, 0) == 0) {
+                        return 0;
+                    }
+                    return Native.getLastError();
+                }
+            }, getTreeExecutor()).walk(root);
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to make " + root + " writable. " + ex.getLocalizedMessage());
+        }
+    }
+
+    private void makeTreeWritableFallback(File file, List<FileOperationError> errors) throws IOException {
+        if (isSymlink(file)) {
+            return;
+        }
+        boolean directory = file.isDirectory();
+        boolean changed = directory ? file.setReadable(true) && file.setWritable(true) && file.setExecutable(true)
+                : makeFileWritable(file);
+        if (!changed) {
+            errors.add(new FileOperationError(file, Native.getLastError(), getLastError()));
+        }
+        File[] children = directory ? file.listFiles() : null;
+        if (children != null) {
+            for (File child : children) {
+                makeTreeWritableFallback(child, errors);
+            }
+        }
+    }
+
+    /**
+     * Deletes the file, or the directory and everything below it. Each directory is read
+     * once through its descriptor and its entries are removed with unlinkat relative to it.
+     * Subdirectories are emptied in parallel. Directories that deny the access needed to
+     * empty them are made accessible on the way. Symbolic links are deleted, never followed.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#DELETE_RECURSIVELY}.
+     *
+     * @return the space and inodes freed and the files that could not be deleted
+     */
+    public DeleteResult deleteRecursively(File file) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.DELETE_RECURSIVELY)) {
+            throw new NativeAccessException("Native recursive delete is only supported on Linux");
+        }
+        try {
+            return new NativeTreeDeleter(getTreeExecutor()).delete(file);
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to delete " + file + ". " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Opens the directory for reading its entries in bulk, with their type and inode and
+     * without a stat per entry. The caller must close the reader.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#DIRECTORY_READER}.
+     */
+    public NativeDirectoryReader openDirectory(File dir) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.DIRECTORY_READER)) {
+            throw new NativeAccessException("Native directory reader is only supported on Linux");
+        }
+        NativeDirectoryReader reader;
+        try {
+            reader = NativeDirectoryReader.openAt(AT_FDCWD, dir.getAbsolutePath(), dir);
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to open directory " + dir + ". " + ex.getLocalizedMessage());
+        }
+        if (reader == null) {
+            throw new NativeAccessException("Failed to open directory " + dir + ". " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        return reader;
+    }
+
+    /**
+     * Copies a file inside the kernel, with copy_file_range, or sendfile where that does not
+     * work, or else a read/write loop through a native buffer. Mode and, if requested,
+     * ownership are set on the open descriptor of the copy. An existing {@code to} is
+     * replaced, not written to, so neither a symlink nor a hard link to {@code from} is
+     * written through.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#COPY_FILE}.
+     *
+     * @return the number of bytes copied
+     */
+    public long copyFile(File from, File to, CopyOptions options) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.COPY_FILE)) {
+            throw new NativeAccessException("Native file copy is only supported on Linux");
+        }
+        long r;
+        try {
+            r = new NativeFileCopier(options).copyFile(from, to);
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to copy " + from + " to " + to + ". " + ex.getLocalizedMessage());
+        }
+        if (r < 0) {
+            throw new NativeAccessException("Failed to copy " + from + " to " + to + ". " + DirectGNUCLibrary.strerror((int) -r));
+        }
+        return r;
+    }
+
+    /**
+     * Copies a directory tree the way {@link #copyFile(File, File, CopyOptions)} copies a file,
+     * with directories processed in parallel. Symbolic links are recreated with the same target,
+     * other special files are reported as errors. Symlinks already in {@code to} are replaced,
+     * never followed, and {@code to} must not be inside {@code from}.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#COPY_FILE}.
+     */
+    public CopyResult copyTree(File from, File to, CopyOptions options) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.COPY_FILE)) {
+            throw new NativeAccessException("Native file copy is only supported on Linux");
+        }
+        try {
+            return new NativeFileCopier(options).copyTree(from, to, getTreeExecutor());
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to copy " + from + " to " + to + ". " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Clones a directory tree with hard links, so the clone takes almost no space and
+     * time proportional to the number of files rather than their size. Directories are
+     * recreated and symlinks recreated with the same target. Files that {@code mutableFiles}
+     * accepts are copied as by {@link #copyFile(File, File, CopyOptions)}, so that writing
+     * to them does not change the source; so are files that can not be linked, for
+     * instance because {@code to} is on another file system. Directories are processed
+     * in parallel.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#LINK_TREE}.
+     *
+     * @param mutableFiles selects the source files to copy, null to link every file
+     * @param options applies to directories and copied files
+     */
+    public CopyResult linkTree(File from, File to, FileFilter mutableFiles, CopyOptions options) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.LINK_TREE)) {
+            throw new NativeAccessException("Native link tree is only supported on Linux");
+        }
+        try {
+            return new NativeFileCopier(options).linkTree(from, to, getTreeExecutor(), mutableFiles);
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to link " + from + " to " + to + ". " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Same as {@code linkTree(from, to, null, new CopyOptions())}, hard linking every file.
+     */
+    public CopyResult linkTree(File from, File to) throws NativeAccessException {
+        return linkTree(from, to, null, new CopyOptions());
+    }
+
+    /**
+     * Clones a directory tree with reflinks, where the clone shares the data of the source
+     * until either is written, on file systems that support it like btrfs and XFS. Whether
+     * the file system of {@code to} supports reflinks is found out with the first file and
+     * remembered; files that can not be reflinked are hard linked if {@code linkFallback}
+     * is set, as by {@link #linkTree(File, File)}, and otherwise copied as by
+     * {@link #copyFile(File, File, CopyOptions)}. The result tells how many files were
+     * reflinked, linked and copied.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#REFLINK_TREE}, which does not depend on the file system.
+     */
+    public CopyResult reflinkTree(File from, File to, boolean linkFallback, CopyOptions options) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.REFLINK_TREE)) {
+            throw new NativeAccessException("Native reflink tree is only supported on Linux");
+        }
+        try {
+            return new NativeFileCopier(options).reflinkTree(from, to, getTreeExecutor(), linkFallback);
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to clone " + from + " to " + to + ". " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Renames a file or directory, failing if {@code to} already exists, so that
+     * concurrent writers can not overwrite each other's result.
+     *
+     * <p>
+     * Atomic if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#ATOMIC_RENAME} and the file system supports it. Otherwise
+     * the name is first reserved by creating an empty {@code to}, which is then replaced,
+     * so {@code to} can briefly be seen empty.
+     */
+    public void renameNoReplace(File from, File to) throws NativeAccessException {
+        int err;
+        try {
+            err = NativeRename.renameNoReplace(from, to);
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to rename " + from + " to " + to + ". " + ex.getLocalizedMessage());
+        }
+        if (err != 0) {
+            throw new NativeAccessException("Failed to rename " + from + " to " + to + ". " + DirectGNUCLibrary.strerror(err));
+        }
+    }
+
+    /**
+     * Exchanges two existing files or directories, for instance to swap in a new build
+     * record or configuration directory and keep the old one to delete.
+     *
+     * <p>
+     * Atomic if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#ATOMIC_RENAME} and the file system supports it. Otherwise
+     * done with three renames, so {@code a} briefly does not exist.
+     */
+    public void exchange(File a, File b) throws NativeAccessException {
+        int err;
+        try {
+            err = NativeRename.exchange(a, b);
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to exchange " + a + " and " + b + ". " + ex.getLocalizedMessage());
+        }
+        if (err != 0) {
+            throw new NativeAccessException("Failed to exchange " + a + " and " + b + ". " + DirectGNUCLibrary.strerror(err));
+        }
+    }
+
+    /**
+     * Returns the shared service that syncs files in batches. The batching window and the
+     * batch size from which whole file systems are synced can be set with the
+     * {@code syncWindow} (microseconds) and {@code syncfsThreshold} system properties.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#DURABILITY_SERVICE}.
+     */
+    public DurabilityService getDurabilityService() throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.DURABILITY_SERVICE)) {
+            throw new NativeAccessException("Durability service is only supported on Linux");
+        }
+        synchronized (JnaNativeUnixSupport.class) {
+            if (durabilityService == null) {
+                durabilityService = new DurabilityService(SYNC_WINDOW, SYNCFS_THRESHOLD);
+            }
+            return durabilityService;
+        }
+    }
+
+    /**
+     * Opens a file to be read from start to end, such as a console log or an archived
+     * artifact being downloaded, with the kernel reading ahead aggressively. With
+     * {@code dropBehind}, the pages read are dropped from the page cache as the stream
+     * advances, so that serving a large file does not evict the rest of the cache.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#SEQUENTIAL_READ}.
+     */
+    public SequentialFileInputStream openSequential(File file, boolean dropBehind) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.SEQUENTIAL_READ)) {
+            throw new NativeAccessException("Sequential read is only supported on Linux");
+        }
+        try {
+            int fd = DirectGNUCLibrary.openat(AT_FDCWD, file.getAbsolutePath(), O_RDONLY | O_CLOEXEC);
+            if (fd < 0) {
+                throw new NativeAccessException("Failed to open " + file + ". " + DirectGNUCLibrary.strerror(Native.getLastError()));
+            }
+            return new SequentialFileInputStream(fd, file, dropBehind);
+        } catch (LinkageError ex) {
+            throw new NativeAccessException("Failed to open " + file + ". " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Asks the kernel to start reading a range of the file into the page cache, without
+     * waiting for it, so that a later read does not wait for the disk. For instance to
+     * prefetch a console log before it is shown.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#SEQUENTIAL_READ}.
+     *
+     * @param length number of bytes to read ahead, 0 for up to the end of the file
+     */
+    public void prefetch(File file, long offset, long length) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.SEQUENTIAL_READ)) {
+            throw new NativeAccessException("Prefetch is only supported on Linux");
+        }
+        try {
+            int fd = DirectGNUCLibrary.openat(AT_FDCWD, file.getAbsolutePath(), O_RDONLY | O_NONBLOCK | O_CLOEXEC);
+            if (fd < 0) {
+                throw new NativeAccessException("Failed to open " + file + ". " + DirectGNUCLibrary.strerror(Native.getLastError()));
+            }
+            int err = LIBC.posix_fadvise64(fd, offset, length, POSIX_FADV_WILLNEED);
+            DirectGNUCLibrary.close(fd);
+            if (err != 0) {
+                throw new NativeAccessException("Failed to prefetch " + file + ". " + DirectGNUCLibrary.strerror(err));
+            }
+        } catch (LinkageError ex) {
+            throw new NativeAccessException("Failed to prefetch " + file + ". " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Same as {@code prefetch(file, 0, 0)}, prefetching the whole file.
+     */
+    public void prefetch(File file) throws NativeAccessException {
+        prefetch(file, 0, 0);
+    }
+
+    /**
+     * Opens a growing log file, such as the console output of a running build, for
+     * reading from shared memory mapped buffers that follow its growth. Everyone opening
+     * the same file shares one tailer; close it when done.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#LOG_TAILER}.
+     */
+    public LogTailer openLogTailer(File file) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.LOG_TAILER)) {
+            throw new NativeAccessException("Log tailer is only supported on Linux");
+        }
+        try {
+            return LogTailer.open(file);
+        } catch (LinkageError ex) {
+            throw new NativeAccessException("Failed to open " + file + ". " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Creates a service watching directories for changes with inotify. Close it when done.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#WATCH_SERVICE}.
+     *
+     * @param coalesceMillis how long changes are collected before they are dispatched,
+     * changes of the same file within that time are reported once
+     */
+    public NativeWatchService newWatchService(long coalesceMillis) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.WATCH_SERVICE)) {
+            throw new NativeAccessException("Watch service is only supported on Linux");
+        }
+        return new NativeWatchService(coalesceMillis);
+    }
+
+    /**
+     * Returns the shared reactor that reads the output of launched processes with a few
+     * threads. The number of threads can be set with the {@code pipeReactorThreads}
+     * system property.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#PIPE_REACTOR}.
+     */
+    public PipeReactor getPipeReactor() throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.PIPE_REACTOR)) {
+            throw new NativeAccessException("Pipe reactor is only supported on Linux");
+        }
+        synchronized (JnaNativeUnixSupport.class) {
+            if (pipeReactor == null) {
+                pipeReactor = new PipeReactor(PIPE_REACTOR_THREADS);
+            }
+            return pipeReactor;
+        }
+    }
+
+    /**
+     * Lists the processes from {@code /proc}, with their command line and environment.
+     * The processes are {@link LinuxProcess}es, linked to their children.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#PROCESS_LIST}.
+     */
+    public List<NativeProcess> getLinuxProcesses() throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.PROCESS_LIST)) {
+            throw new NativeAccessException("Process list is only supported on Linux");
+        }
+        try {
+            return new ArrayList<NativeProcess>(LinuxProcessTable.readAll(getTreeExecutor()));
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to list the processes. " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Returns the shared snapshot of the process table. It is read when first asked for,
+     * call {@link ProcessTableSnapshot#refresh()} to bring it up to date.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#PROCESS_LIST}.
+     */
+    public ProcessTableSnapshot getProcessTable() throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.PROCESS_LIST)) {
+            throw new NativeAccessException("Process list is only supported on Linux");
+        }
+        synchronized (JnaNativeUnixSupport.class) {
+            if (processTable == null) {
+                ProcessTableSnapshot snapshot = new ProcessTableSnapshot(getTreeExecutor());
+                try {
+                    snapshot.refresh();
+                } catch (LinkageError ex) {
+                    throw new NativeAccessException("Failed to list the processes. " + ex.getLocalizedMessage());
+                }
+                processTable = snapshot;
+            }
+            return processTable;
+        }
+    }
+
+    /**
+     * Finds the processes whose environment has the variable with the value, such as the
+     * cookie given to the processes of a build. The {@link #getProcessTable() shared process table}
+     * is refreshed and searched, with its {@link ProcessTableSnapshot#getEnvironmentIndex(String) index}
+     * of the variable if there is one.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#PROCESS_LIST}.
+     */
+    public List<NativeProcess> findProcessesByEnvironment(String name, String value) throws NativeAccessException {
+        ProcessTableSnapshot table = getProcessTable();
+        try {
+            List<NativeProcess> processes = new ArrayList<NativeProcess>();
+            synchronized (table) {
+                table.refresh();
+                for (int pid : table.findByEnvironment(name, value)) {
+                    processes.add(table.getProcess(pid));
+                }
+            }
+            return processes;
+        } catch (LinkageError ex) {
+            throw new NativeAccessException("Failed to list the processes. " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Opens a handle on the process, with which it can be signalled and waited for without
+     * the risk of reaching another process that got its pid. Close it when done.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#PROCESS_HANDLE}.
+     *
+     * @return the handle, or null if there is no such process
+     */
+    public LinuxProcessHandle openProcessHandle(int pid) throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.PROCESS_HANDLE)) {
+            throw new NativeAccessException("Process handles are only supported on Linux");
+        }
+        try {
+            return LinuxProcessHandle.open(pid);
+        } catch (LinkageError ex) {
+            throw new NativeAccessException("Failed to open process " + pid + ". " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Kills the process and its descendants. They are stopped first, parents before their
+     * children, so that no new process escapes, then sent SIGTERM and continued. Those still
+     * running after the grace period are sent SIGKILL. The exits are waited for with a poll
+     * on the pidfds of the processes.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#PROCESS_HANDLE}.
+     *
+     * @return true if all processes have exited
+     */
+    public boolean killProcessTree(int pid, long gracePeriodMillis) throws NativeAccessException, InterruptedException {
+        if (!hasSupportFor(UnixNativeFunction.PROCESS_HANDLE)) {
+            throw new NativeAccessException("Process handles are only supported on Linux");
+        }
+        ProcessTableSnapshot table = getProcessTable();
+        ProcessTreeKiller killer = new ProcessTreeKiller(table);
+        try {
+            synchronized (table) {
+                table.refresh();
+                LinuxProcess root = table.getProcess(pid);
+                if (root == null) {
+                    return true;
+                }
+                killer.freeze(root);
+            }
+            killer.terminate();
+            return killer.awaitOrKill(gracePeriodMillis);
+        } catch (LinkageError ex) {
+            throw new NativeAccessException("Failed to kill process " + pid + ". " + ex.getLocalizedMessage());
+        } finally {
+            killer.close();
+        }
+    }
+
+    /**
+     * Returns the shared notifier of process exits, which watches any number of processes
+     * with one thread and completes their futures as they exit.
+     *
+     * <p>
+     * Only available if {@link #hasSupportFor(UnixNativeFunction)} returns true for
+     * {@link UnixNativeFunction#CHILD_EXIT_NOTIFIER}.
+     */
+    public ChildExitNotifier getChildExitNotifier() throws NativeAccessException {
+        if (!hasSupportFor(UnixNativeFunction.CHILD_EXIT_NOTIFIER)) {
+            throw new NativeAccessException("Child exit notifier is only supported on Linux");
+        }
+        synchronized (JnaNativeUnixSupport.class) {
+            if (childExitNotifier == null) {
+                childExitNotifier = new ChildExitNotifier();
+            }
+            return childExitNotifier;
+        }
+    }
+
+    /**
+     * Thread pool shared by the parallel tree operations. Its threads are daemons, so an
+     * idle pool does not keep the JVM alive.
+     */
+    static synchronized ExecutorService getTreeExecutor() {
+        if (treeExecutor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            treeExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "JNA native tree worker #" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return treeExecutor;
+    }
+
+    private static boolean isSymlink(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent == null) {
+            return false;
+        }
+        File canonical = new File(parent.getCanonicalFile(), file.getName());
+        return !canonical.getCanonicalFile().equals(canonical.getAbsoluteFile());
+    }
+
     @Override
     public int mode(File file) {
+        return stat(file).getMode();
+    }
+
+    /**
+     * Returns the status of the file, following symbolic links.
+     *
+     * <p>
+     * The returned snapshot is reused by the next stat or lstat on the same thread,
+     * see {@link NativeFileStat}.
+     */
+    public NativeFileStat stat(File file) throws NativeAccessException {
+        return stat(file, true);
+    }
+
+    /**
+     * Returns the status of the file, or of the symbolic link itself if it is one.
+     *
+     * <p>
+     * The returned snapshot is reused by the next stat or lstat on the same thread,
+     * see {@link NativeFileStat}.
+     */
+    public NativeFileStat lstat(File file) throws NativeAccessException {
+        return stat(file, false);
+    }
+
+    private NativeFileStat stat(File file, boolean followLinks) throws NativeAccessException {
+        int err;
+        NativeFileStat stat = NativeFileStat.current();
         try {
-            return PosixAPI.get().stat(file.getPath()).mode();
+            err = stat.statAt(AT_FDCWD, file.getAbsolutePath(), file, followLinks);
         } catch (Throwable ex) {
-            throw new NativeAccessException("Failed to get File mode. " + ex.getLocalizedMessage());
-        }  
+            throw new NativeAccessException("Failed to get File status. " + ex.getLocalizedMessage());
+        }
+        if (err != 0) {
+            throw new NativeAccessException("Failed to get File status of " + file + ". " + DirectGNUCLibrary.strerror(err));
+        }
+        return stat;
     }
 
     @Override
     public boolean makeFileWritable(File file) {
+        int mode = stat(file).getMode();
+        if ((mode & 0200) != 0) {
+            return true; // already u+w
+        }
+        String path = file.getAbsolutePath();
         try {
-            POSIX posix = PosixAPI.get();
-            String path = file.getAbsolutePath();
-            FileStat stat = posix.stat(path);
-            return posix.chmod(path, stat.mode() | 0200) == 0; // u+w
-        } catch (Throwable ex) {
-            throw new NativeAccessException("Failed to make file writable. " + ex.getLocalizedMessage());
-        } 
+            return DirectGNUCLibrary.chmod(path, mode | 0200) == 0;
+        } catch (LinkageError e) {
+            // if JNA is unavailable, fall back.
+            try {
+                return PosixAPI.get().chmod(path, mode | 0200) == 0;
+            } catch (Throwable ex) {
+                throw new NativeAccessException("Failed to make file writable. " + ex.getLocalizedMessage());
+            }
+        }
     }
 
     @Override
@@ -152,20 +960,28 @@ public class JnaNativeUnixSupport extends NativeUnixSupport {
     }
 
     public boolean createSymlink(String targetPath, File symlinkFile, boolean usePosix) throws NativeAccessException {
+        return symlink(symlinkFile.getAbsolutePath(), targetPath, usePosix);
+    }
+
+    /**
+     * Creates the symlink {@code linkPath} with the content {@code linkTarget}, which is kept
+     * as is, relative or not.
+     */
+    static boolean symlink(String linkTarget, String linkPath, boolean usePosix) throws NativeAccessException {
         if (usePosix) {
-            return PosixAPI.get().symlink(symlinkFile.getAbsolutePath(), targetPath) == 0;
+            return PosixAPI.get().symlink(linkTarget, linkPath) == 0;
 
         } else {
             try {
-                return LIBC.symlink(symlinkFile.getAbsolutePath(), targetPath) == 0;
+                return DirectGNUCLibrary.symlink(linkTarget, linkPath) == 0;
             } catch (LinkageError exc) {
-                logger.info("Could not create symlink with JNA. From - " + symlinkFile
-                        + " to " + targetPath + ". " + exc.getLocalizedMessage()
+                LoggerFactory.getLogger(JnaNativeUnixSupport.class).info("Could not create symlink with JNA. From - " + linkTarget
+                        + " to " + linkPath + ". " + exc.getLocalizedMessage()
                         + " Trying Posix API..");
                 // if JNA is unavailable, fall back.
                 // we still prefer to try JNA first as PosixAPI supports even smaller platforms.
                 try {
-                    return PosixAPI.get().symlink(symlinkFile.getAbsolutePath(), targetPath) == 0;
+                    return PosixAPI.get().symlink(linkTarget, linkPath) == 0;
                 } catch (Throwable ex) {
                     throw new NativeAccessException("Failed to Create Symlink. " + ex.getLocalizedMessage());
                 } 
@@ -175,29 +991,32 @@ public class JnaNativeUnixSupport extends NativeUnixSupport {
 
     @Override
     public String resolveSymlink(File linkFile) throws NativeAccessException {
+        SymlinkCache cache = getSymlinkCache();
+        if (cache != null) {
+            return cache.resolve(linkFile);
+        }
+        return readSymlink(linkFile);
+    }
+
+    /**
+     * Reads the symlink, bypassing the {@link SymlinkCache}.
+     */
+    String readSymlink(File linkFile) throws NativeAccessException {
         String filename = linkFile.getAbsolutePath();
         try {
-            for (int sz = 512; sz < 65536; sz *= 2) {
-                Memory m = new Memory(sz);
-                int r = LIBC.readlink(filename, m, new NativeLong(sz));
-                if (r < 0) {
-                    int err = Native.getLastError();
-                    if (err == 22/*
-                             * EINVAL --- but is this really portable?
-                             */) {
-                        return null; // this means it's not a symlink
-                    }
-                    throw new NativeAccessException("Failed to readlink " + linkFile + " error=" + err + " " + LIBC.strerror(err));
+            SymlinkBuffer buffer = SYMLINK_BUFFER.get();
+            int r = DirectGNUCLibrary.readlink(filename, buffer.memory, SymlinkBuffer.SIZE);
+            if (r < 0) {
+                int err = Native.getLastError();
+                if (err == EINVAL) {
+                    return null; // this means it's not a symlink
                 }
-                if (r == sz) {
-                    continue;   // buffer too small
-                }
-                byte[] buf = new byte[r];
-                m.read(0, buf, 0, r);
-                return new String(buf);
+                throw new NativeAccessException("Failed to readlink " + linkFile + " error=" + err + " " + DirectGNUCLibrary.strerror(err));
+            }
+            if (r < SymlinkBuffer.PATH_MAX) {
+                return buffer.getString(r);
             }
-            // something is wrong. It can't be this long!
-            throw new NativeAccessException("Symlink too long: " + linkFile);
+            return resolveLongSymlink(linkFile);
         } catch (LinkageError e) {
             try {
                 // if JNA is unavailable, fall back.
@@ -210,19 +1029,156 @@ public class JnaNativeUnixSupport extends NativeUnixSupport {
 
     }
 
+    /**
+     * Returns the cache used by {@link #resolveSymlink(File)}, or null if it is disabled.
+     * It is only available on Linux and when the {@code symlinkCacheSize} system property is set.
+     */
+    public SymlinkCache getSymlinkCache() {
+        SymlinkCache cache = symlinkCache;
+        if (cache != null || symlinkCacheFailed || SYMLINK_CACHE_SIZE <= 0) {
+            return cache;
+        }
+        synchronized (JnaNativeUnixSupport.class) {
+            if (symlinkCache == null && !symlinkCacheFailed) {
+                try {
+                    if (!Platform.isLinux()) {
+                        throw new UnsupportedOperationException("Symlink cache needs inotify, which is Linux only");
+                    }
+                    symlinkCache = new SymlinkCache(this, SYMLINK_CACHE_SIZE);
+                } catch (Throwable ex) {
+                    logger.warn("Failed to create the symlink cache, resolving without it", ex);
+                    symlinkCacheFailed = true;
+                }
+            }
+            return symlinkCache;
+        }
+    }
+
+    /**
+     * Reads a link target that did not fit in PATH_MAX, which some file systems allow.
+     */
+    private String resolveLongSymlink(File linkFile) throws NativeAccessException {
+        String filename = linkFile.getAbsolutePath();
+        for (int sz = 2 * SymlinkBuffer.PATH_MAX; sz < 65536; sz *= 2) {
+            Memory m = new Memory(sz);
+            int r = DirectGNUCLibrary.readlink(filename, m, new NativeLong(sz));
+            if (r < 0) {
+                int err = Native.getLastError();
+                throw new NativeAccessException("Failed to readlink " + linkFile + " error=" + err + " " + DirectGNUCLibrary.strerror(err));
+            }
+            if (r == sz) {
+                continue;   // buffer too small
+            }
+            byte[] buf = new byte[r];
+            m.read(0, buf, 0, r);
+            return new String(buf);
+        }
+        // something is wrong. It can't be this long!
+        throw new NativeAccessException("Symlink too long: " + linkFile);
+    }
+
+    /**
+     * Resolves many symlinks at once. Links are grouped by directory and each directory
+     * is opened only once, the links in it are read relative to that descriptor.
+     *
+     * @return the target of each link, in the iteration order of {@code linkFiles}. The value
+     *      is null if the file is not a symlink or could not be read.
+     */
+    public Map<File, String> resolveSymlinks(Collection<File> linkFiles) throws NativeAccessException {
+        Map<File, String> targets = new LinkedHashMap<File, String>();
+        if (!isLinuxWithKnownFlags()) {
+            for (File linkFile : linkFiles) {
+                try {
+                    targets.put(linkFile, resolveSymlink(linkFile));
+                } catch (NativeAccessException ex) {
+                    targets.put(linkFile, null);
+                }
+            }
+            return targets;
+        }
+
+        Map<File, List<File>> byDirectory = new LinkedHashMap<File, List<File>>();
+        for (File linkFile : linkFiles) {
+            targets.put(linkFile, null);
+            File dir = linkFile.getAbsoluteFile().getParentFile();
+            List<File> links = byDirectory.get(dir);
+            if (links == null) {
+                links = new ArrayList<File>();
+                byDirectory.put(dir, links);
+            }
+            links.add(linkFile);
+        }
+
+        try {
+            SymlinkBuffer buffer = SYMLINK_BUFFER.get();
+            for (Map.Entry<File, List<File>> e : byDirectory.entrySet()) {
+                File dir = e.getKey();
+                int dirFd = dir == null ? AT_FDCWD
+                        : DirectGNUCLibrary.openat(AT_FDCWD, dir.getPath(), O_RDONLY | O_DIRECTORY | O_CLOEXEC);
+                if (dirFd == -1) {
+                    logger.debug("Failed to open " + dir + ". " + DirectGNUCLibrary.strerror(Native.getLastError()));
+                    continue;
+                }
+                try {
+                    for (File linkFile : e.getValue()) {
+                        String name = dir == null ? linkFile.getAbsolutePath() : linkFile.getName();
+                        int r = DirectGNUCLibrary.readlinkat(dirFd, name, buffer.memory, SymlinkBuffer.SIZE);
+                        if (r >= SymlinkBuffer.PATH_MAX) {
+                            targets.put(linkFile, resolveLongSymlink(linkFile));
+                        } else if (r >= 0) {
+                            targets.put(linkFile, buffer.getString(r));
+                        }
+                    }
+                } finally {
+                    if (dirFd != AT_FDCWD) {
+                        DirectGNUCLibrary.close(dirFd);
+                    }
+                }
+            }
+        } catch (Throwable ex) {
+            throw new NativeAccessException("Failed to Resolve Symlinks. " + ex.getLocalizedMessage());
+        }
+        return targets;
+    }
+
+    /**
+     * Returns the latest sample of the {@link #getSystemMemorySampler() system memory sampler},
+     * which is at most {@code systemMemorySamplePeriod} milliseconds old. Use
+     * {@link SystemMemorySampler#sampleNow()} for a fresh value. In a container, the
+     * memory is capped by the limits of its control group.
+     */
     @Override
     public NativeSystemMemory getSystemMemory() throws NativeAccessException {
-        try {
-            return new SystemMemoryImpl(MemoryMonitor.get().monitor());
-        } catch (Throwable exc) {
-            throw new NativeAccessException("Failed to get System Memory. " + exc.getLocalizedMessage());
-        }  
+        return getSystemMemorySampler().getLatest();
+    }
+
+    /**
+     * Reads the limits of the control group of this process, such as the memory and CPUs
+     * given to the container it runs in. Linux only, elsewhere there are no limits.
+     */
+    public CgroupLimits getCgroupLimits() {
+        Cgroup cgroup = getSystemMemorySampler().getCgroup();
+        return cgroup != null ? cgroup.read() : new CgroupLimits(-1, -1, -1, -1, -1, -1);
+    }
+
+    /**
+     * Returns the shared sampler of the system memory. The sampling period and the number
+     * of samples kept can be set with the {@code systemMemorySamplePeriod} (milliseconds)
+     * and {@code systemMemoryHistory} system properties; a period of 0 samples on demand.
+     */
+    public SystemMemorySampler getSystemMemorySampler() {
+        synchronized (JnaNativeUnixSupport.class) {
+            if (systemMemorySampler == null) {
+                systemMemorySampler = new SystemMemorySampler(SYSTEM_MEMORY_SAMPLE_PERIOD, SYSTEM_MEMORY_HISTORY);
+            }
+            return systemMemorySampler;
+        }
     }
 
     @Override
     public int getEuid() throws NativeAccessException {
         try {
-            return LIBC.geteuid();
+            return DirectGNUCLibrary.geteuid();
         } catch (Throwable exc) {
             throw new NativeAccessException("Failed to get Euid. " + exc.getLocalizedMessage());
         } 
@@ -231,7 +1187,7 @@ public class JnaNativeUnixSupport extends NativeUnixSupport {
     @Override
     public int getEgid() throws NativeAccessException {
         try {
-            return LIBC.getegid();
+            return DirectGNUCLibrary.getegid();
         } catch (Throwable exc) {
             throw new NativeAccessException("Failed to get Egid. " + exc.getLocalizedMessage());
         } 
@@ -255,11 +1211,11 @@ public class JnaNativeUnixSupport extends NativeUnixSupport {
             // close all files upon exec, except stdin, stdout, and stderr
             int sz = LIBC.getdtablesize();
             for (int i = 3; i < sz; i++) {
-                int flags = LIBC.fcntl(i, F_GETFD);
+                int flags = DirectGNUCLibrary.fcntl(i, F_GETFD, 0);
                 if (flags < 0) {
                     continue;
                 }
-                LIBC.fcntl(i, F_SETFD, flags | FD_CLOEXEC);
+                DirectGNUCLibrary.fcntl(i, F_SETFD, flags | FD_CLOEXEC);
             }
 
             if (properties != null) {
@@ -279,7 +1235,7 @@ public class JnaNativeUnixSupport extends NativeUnixSupport {
         } catch (Throwable ex) {
             throw new NativeAccessException("Failed to restart Java Process. " + ex.getLocalizedMessage());
         }  
-        throw new NativeAccessException("Failed to restart Java Process. " + LIBC.strerror(Native.getLastError()));
+        throw new NativeAccessException("Failed to restart Java Process. " + DirectGNUCLibrary.strerror(Native.getLastError()));
     }
 
     @Override
@@ -376,28 +1332,20 @@ public class JnaNativeUnixSupport extends NativeUnixSupport {
         } 
     }
 
-    private static class SystemMemoryImpl implements NativeSystemMemory {
-
-        MemoryUsage memoryUsage;
-
-        SystemMemoryImpl(MemoryUsage mem) {
-            memoryUsage = mem;
-        }
-
-        public long getAvailablePhysicalMemory() {
-            return memoryUsage.availablePhysicalMemory;
-        }
+    /**
+     * Off-heap buffer for readlink, one per thread and reused for every call.
+     */
+    private static class SymlinkBuffer {
 
-        public long getAvailableSwapSpace() {
-            return memoryUsage.availableSwapSpace;
-        }
+        static final int PATH_MAX = 4096;
+        static final NativeLong SIZE = new NativeLong(PATH_MAX);
 
-        public long getTotalPhysicalMemory() {
-            return memoryUsage.totalPhysicalMemory;
-        }
+        // one more byte for the terminating NUL, which readlink does not write
+        final Memory memory = new Memory(PATH_MAX + 1);
 
-        public long getTotalSwapSpace() {
-            return memoryUsage.totalSwapSpace;
+        String getString(int length) {
+            memory.setByte(length, (byte) 0);
+            return memory.getString(0);
         }
     }
 
@@ -0,0 +1,296 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Native;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.hudson.jna.NativeAccessException;
+import org.eclipse.hudson.jna.NativeProcess;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * A process read from {@code /proc}, see {@link JnaNativeUnixSupport#getLinuxProcesses()}.
+ * The command line and the environment are kept as read and only decoded when asked for.
+ */
+public class LinuxProcess implements NativeProcess {
+
+    private final int pid;
+    private final int ppid;
+    private final String name;
+    private final long startTime;
+    // device and inode of /proc/<pid>/exe, -1 if it could not be read
+    private final long executableDevice;
+    private final long executableInode;
+    // NUL separated, as in /proc/<pid>/cmdline and environ
+    private final byte[] commandLine;
+    private final byte[] environment;
+    private List<LinuxProcess> children = Collections.emptyList();
+    private Map<String, String> environmentVariables;
+
+    LinuxProcess(int pid, int ppid, String name, long startTime, long executableDevice, long executableInode,
+            byte[] commandLine, byte[] environment) {
+        this.pid = pid;
+        this.ppid = ppid;
+        this.name = name;
+        this.startTime = startTime;
+        this.executableDevice = executableDevice;
+        this.executableInode = executableInode;
+        this.commandLine = commandLine;
+        this.environment = environment;
+    }
+
+    /**
+     * Returns this process with another parent, after its parent died.
+     */
+    LinuxProcess withParent(int ppid) {
+        return new LinuxProcess(pid, ppid, name, startTime, executableDevice, executableInode, commandLine, environment);
+    }
+
+    /**
+     * Tells whether the process still runs the executable it was read with.
+     */
+    boolean hasExecutable(long device, long inode) {
+        return executableDevice == device && executableInode == inode;
+    }
+
+    /**
+     * Tells whether the other process runs the same executable as this one.
+     */
+    boolean hasExecutableOf(LinuxProcess other) {
+        return hasExecutable(other.executableDevice, other.executableInode);
+    }
+
+    public int getPid() {
+        return pid;
+    }
+
+    public int getPpid() {
+        return ppid;
+    }
+
+    /**
+     * The name of the executable, as shown by ps, at most 15 characters.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * When the process started, in clock ticks after boot. Together with the pid it
+     * identifies the process, as pids get reused.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * The processes of the same snapshot whose parent this process is.
+     */
+    public List<LinuxProcess> getChildren() {
+        return children;
+    }
+
+    void setChildren(List<LinuxProcess> children) {
+        this.children = children;
+    }
+
+    /**
+     * The arguments separated by spaces, empty for kernel threads and zombies.
+     */
+    public String getCommandLine() {
+        StringBuilder builder = new StringBuilder(commandLine.length);
+        for (String arg : split(commandLine)) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(arg);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The arguments, the first one being the command.
+     */
+    public List<String> getArguments() {
+        return split(commandLine);
+    }
+
+    /**
+     * The environment the process started with, empty if it can not be read, as for the
+     * processes of other users.
+     */
+    public synchronized Map<String, String> getEnvironmentVariables() {
+        if (environmentVariables == null) {
+            Map<String, String> variables = new HashMap<String, String>();
+            for (String variable : split(environment)) {
+                int equals = variable.indexOf('=');
+                if (equals > 0) {
+                    variables.put(variable.substring(0, equals), variable.substring(equals + 1));
+                }
+            }
+            environmentVariables = variables;
+        }
+        return environmentVariables;
+    }
+
+    /**
+     * Tells whether the environment of the process has the variable with the value,
+     * without decoding the environment.
+     */
+    public boolean hasEnvironmentVariable(String name, String value) {
+        return hasEnvironmentEntry(encode(name + "=" + value));
+    }
+
+    /**
+     * Returns the value of the variable in the environment of the process, or null if it
+     * has no such variable, without decoding the rest of the environment.
+     */
+    public String getEnvironmentVariable(String name) {
+        int start = findEnvironmentEntry(encode(name + "="), 0);
+        if (start < 0) {
+            return null;
+        }
+        int end = start;
+        while (end < environment.length && environment[end] != 0) {
+            end++;
+        }
+        return decode(environment, start, end - start);
+    }
+
+    /**
+     * Tells whether the environment has the encoded {@code NAME=VALUE} entry.
+     */
+    boolean hasEnvironmentEntry(byte[] entry) {
+        for (int end = findEnvironmentEntry(entry, 0); end >= 0; end = findEnvironmentEntry(entry, end)) {
+            if (end == environment.length || environment[end] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the next entry of the environment that starts with {@code prefix}.
+     *
+     * @return the offset after the prefix, or -1
+     */
+    private int findEnvironmentEntry(byte[] prefix, int from) {
+        // each entry starts at the beginning or after a NUL
+        int start = from;
+        while (start > 0 && start <= environment.length && environment[start - 1] != 0) {
+            start++;
+        }
+        while (start + prefix.length <= environment.length) {
+            int i = 0;
+            while (i < prefix.length && environment[start + i] == prefix[i]) {
+                i++;
+            }
+            if (i == prefix.length) {
+                return start + i;
+            }
+            while (start < environment.length && environment[start] != 0) {
+                start++;
+            }
+            start++;
+        }
+        return -1;
+    }
+
+    /**
+     * Sends SIGTERM to the process, through a {@link LinuxProcessHandle} so that the signal
+     * does not reach another process that got its pid.
+     */
+    public void kill() {
+        LinuxProcessHandle handle = LinuxProcessHandle.open(this);
+        if (handle != null) {
+            try {
+                handle.signal(SIGTERM);
+            } finally {
+                handle.close();
+            }
+        }
+    }
+
+    /**
+     * Stops the process and its descendants, as of the snapshot, sends them SIGTERM and
+     * continues them. See {@link JnaNativeUnixSupport#killProcessTree(int, long)} to also wait
+     * for them to exit.
+     */
+    public void killRecursively() {
+        ProcessTreeKiller killer = new ProcessTreeKiller(null);
+        try {
+            killer.freeze(this);
+            killer.terminate();
+        } finally {
+            killer.close();
+        }
+    }
+
+    public void setPriority(int priority) {
+        if (LIBC.setpriority(PRIO_PROCESS, pid, priority) != 0) {
+            throw new NativeAccessException("Failed to set the priority of " + pid + ". " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pid + " " + name;
+    }
+
+    private static List<String> split(byte[] strings) {
+        List<String> result = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i <= strings.length; i++) {
+            if (i == strings.length || strings[i] == 0) {
+                if (i > start) {
+                    result.add(decode(strings, start, i - start));
+                }
+                start = i + 1;
+            }
+        }
+        return result;
+    }
+
+    static String decode(byte[] bytes, int offset, int length) {
+        try {
+            return new String(bytes, offset, length, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    static byte[] encode(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * A handle on a process that stays with it even if its pid is reused, so a signal never
+ * reaches another process. It is a pidfd (Linux 5.3 and later), which is readable once
+ * the process has exited. On older kernels the process is told apart by its start time
+ * and signalled by pid, which leaves a short window for a reused pid.
+ *
+ * <p>
+ * Close the handle when done, see {@link JnaNativeUnixSupport#openProcessHandle(int)}.
+ */
+public class LinuxProcessHandle implements Closeable {
+
+    /**
+     * Cleared once the kernel turns out to have no pidfds.
+     */
+    private static volatile boolean pidfdSupported = true;
+
+    // longest poll, so that an interrupt is noticed
+    private static final int MAX_POLL_MILLIS = 1000;
+    // how often the processes are checked when there are no pidfds
+    private static final int FALLBACK_POLL_MILLIS = 10;
+
+    private final int pid;
+    private final long startTime;
+    private int fd;
+    private volatile boolean exited;
+
+    private LinuxProcessHandle(int pid, long startTime, int fd) {
+        this.pid = pid;
+        this.startTime = startTime;
+        this.fd = fd;
+    }
+
+    /**
+     * Opens a handle on the process, or returns null if it has exited.
+     */
+    static LinuxProcessHandle open(int pid) throws NativeAccessException {
+        LinuxProcess process = LinuxProcessTable.read(pid);
+        return process != null ? open(process) : null;
+    }
+
+    /**
+     * Opens a handle on the process, or returns null if it has exited, even if its pid
+     * is now used by another process.
+     */
+    static LinuxProcessHandle open(LinuxProcess process) throws NativeAccessException {
+        int pid = process.getPid();
+        int fd = -1;
+        if (pidfdSupported) {
+            fd = LIBC.syscall(new NativeLong(LinuxSyscall.PIDFD_OPEN), new NativeLong(pid), new NativeLong(0)).intValue();
+            if (fd < 0) {
+                int err = Native.getLastError();
+                if (err == ESRCH) {
+                    return null;
+                }
+                if (err != ENOSYS) {
+                    throw new NativeAccessException("Failed to open process " + pid + ". " + DirectGNUCLibrary.strerror(err));
+                }
+                pidfdSupported = false;
+            }
+        }
+        // the pidfd is of the process we know only if it still has the same start time
+        if (!LinuxProcessTable.isRunning(pid, process.getStartTime())) {
+            if (fd >= 0) {
+                DirectGNUCLibrary.close(fd);
+            }
+            return null;
+        }
+        return new LinuxProcessHandle(pid, process.getStartTime(), fd);
+    }
+
+    public int getPid() {
+        return pid;
+    }
+
+    /**
+     * The pidfd, or -1.
+     */
+    int getFd() {
+        return fd;
+    }
+
+    /**
+     * Tells whether the handle is a pidfd, with which signals can not reach another process.
+     */
+    public boolean isPidfd() {
+        return fd >= 0;
+    }
+
+    /**
+     * Sends the signal to the process.
+     *
+     * @return false if the process has exited
+     */
+    public synchronized boolean signal(int signal) throws NativeAccessException {
+        if (exited) {
+            return false;
+        }
+        int r;
+        if (fd >= 0) {
+            r = LIBC.syscall(new NativeLong(LinuxSyscall.PIDFD_SEND_SIGNAL), new NativeLong(fd), new NativeLong(signal),
+                    Pointer.NULL, new NativeLong(0)).intValue();
+        } else if (LinuxProcessTable.isRunning(pid, startTime)) {
+            r = LIBC.kill(pid, signal);
+        } else {
+            exited = true;
+            return false;
+        }
+        if (r != 0) {
+            int err = Native.getLastError();
+            if (err == ESRCH) {
+                exited = true;
+                return false;
+            }
+            throw new NativeAccessException("Failed to signal process " + pid + ". " + DirectGNUCLibrary.strerror(err));
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether the process is still running.
+     */
+    public boolean isAlive() {
+        if (!exited) {
+            Memory pollFd = null;
+            if (fd >= 0) {
+                pollFd = new Memory(SIZEOF_POLLFD);
+                pollFd.setInt(0, fd);
+                pollFd.setShort(4, (short) POLLIN);
+                pollFd.setShort(6, (short) 0);
+            }
+            exited = fd >= 0 ? LIBC.poll(pollFd, 1, 0) > 0 : !LinuxProcessTable.isRunning(pid, startTime);
+        }
+        return !exited;
+    }
+
+    /**
+     * Waits for the process to exit.
+     *
+     * @return false if it is still running after the timeout
+     */
+    public boolean waitFor(long timeoutMillis) throws InterruptedException {
+        List<LinuxProcessHandle> handles = new ArrayList<LinuxProcessHandle>(1);
+        handles.add(this);
+        return waitFor(handles, timeoutMillis).isEmpty();
+    }
+
+    /**
+     * Waits for the processes to exit, with one poll on the pidfds of all of them.
+     *
+     * @return the processes still running after the timeout
+     */
+    public static List<LinuxProcessHandle> waitFor(Collection<LinuxProcessHandle> handles, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        List<LinuxProcessHandle> running = new ArrayList<LinuxProcessHandle>(handles);
+        while (true) {
+            // the processes without a pidfd are checked at short intervals
+            boolean fallback = false;
+            for (LinuxProcessHandle handle : running) {
+                if (handle.fd < 0) {
+                    fallback = true;
+                    handle.isAlive();
+                }
+            }
+            removeExited(running);
+            long remaining = deadline - System.currentTimeMillis();
+            if (running.isEmpty() || remaining <= 0) {
+                return running;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            int timeout = (int) Math.min(remaining, fallback ? FALLBACK_POLL_MILLIS : MAX_POLL_MILLIS);
+            List<LinuxProcessHandle> polled = new ArrayList<LinuxProcessHandle>(running.size());
+            for (LinuxProcessHandle handle : running) {
+                if (handle.fd >= 0) {
+                    polled.add(handle);
+                }
+            }
+            if (polled.isEmpty()) {
+                Thread.sleep(timeout);
+                continue;
+            }
+            Memory pollFds = new Memory(SIZEOF_POLLFD * polled.size());
+            for (int i = 0; i < polled.size(); i++) {
+                pollFds.setInt(i * SIZEOF_POLLFD, polled.get(i).fd);
+                pollFds.setShort(i * SIZEOF_POLLFD + 4, (short) POLLIN);
+                pollFds.setShort(i * SIZEOF_POLLFD + 6, (short) 0);
+            }
+            int n = LIBC.poll(pollFds, polled.size(), timeout);
+            if (n < 0 && Native.getLastError() != EINTR) {
+                throw new NativeAccessException("Failed to wait for the processes. " + DirectGNUCLibrary.strerror(Native.getLastError()));
+            }
+            for (int i = 0; n > 0 && i < polled.size(); i++) {
+                if (pollFds.getShort(i * SIZEOF_POLLFD + 6) != 0) {
+                    polled.get(i).exited = true;
+                }
+            }
+        }
+    }
+
+    private static void removeExited(List<LinuxProcessHandle> handles) {
+        for (int i = handles.size() - 1; i >= 0; i--) {
+            if (handles.get(i).exited) {
+                handles.remove(i);
+            }
+        }
+    }
+
+    public synchronized void close() {
+        if (fd >= 0) {
+            DirectGNUCLibrary.close(fd);
+            fd = -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "process " + pid;
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Reads the processes from {@code /proc}. The files are parsed by hand from buffers kept
+ * per thread, and the processes are read in chunks on the tree executor.
+ *
+ * <p>
+ * When a process is read again, its command line and environment are only read again if
+ * it ran another program since, which is told by its name or the inode of its executable
+ * having changed. A process that runs the same executable again, or whose executable can
+ * not be stat'ed, as those of other users and kernel threads, is only told by its name.
+ */
+final class LinuxProcessTable {
+
+    static final File PROC = new File("/proc");
+
+    // processes read by one task
+    private static final int CHUNK_SIZE = 64;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final ThreadLocal<ProcReader> READERS = new ThreadLocal<ProcReader>() {
+
+        @Override
+        protected ProcReader initialValue() {
+            return new ProcReader();
+        }
+    };
+
+    private LinuxProcessTable() {
+    }
+
+    /**
+     * Lists the pids in {@code /proc}, in the order of the directory.
+     */
+    static int[] listPids() throws NativeAccessException {
+        NativeDirectoryReader reader = NativeDirectoryReader.openAt(AT_FDCWD, PROC.getPath(), PROC);
+        if (reader == null) {
+            int err = Native.getLastError();
+            throw new NativeAccessException("Failed to open " + PROC + ". " + DirectGNUCLibrary.strerror(err));
+        }
+        try {
+            int[] pids = new int[512];
+            int count = 0;
+            byte[] name = new byte[256];
+            while (reader.next()) {
+                if (reader.getType() != NativeDirectoryReader.DT_DIR) {
+                    continue;
+                }
+                int length = reader.copyName(name, 0);
+                int pid = parsePid(name, length);
+                if (pid > 0) {
+                    if (count == pids.length) {
+                        pids = Arrays.copyOf(pids, count * 2);
+                    }
+                    pids[count++] = pid;
+                }
+            }
+            return Arrays.copyOf(pids, count);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the processes of the current {@code /proc}, with their children linked.
+     */
+    static List<LinuxProcess> readAll(ExecutorService executor) throws InterruptedException {
+        List<LinuxProcess> processes = read(listPids(), executor);
+        linkChildren(processes);
+        return processes;
+    }
+
+    /**
+     * Reads the processes, in parallel if there are many. Processes that are gone are left out.
+     */
+    static List<LinuxProcess> read(int[] pids, ExecutorService executor) throws InterruptedException {
+        LinuxProcess[] read = read(pids, null, executor);
+        List<LinuxProcess> processes = new ArrayList<LinuxProcess>(read.length);
+        for (LinuxProcess process : read) {
+            if (process != null) {
+                processes.add(process);
+            }
+        }
+        return processes;
+    }
+
+    /**
+     * Reads the processes, in parallel if there are many. Where {@code previous} has a process
+     * with the same start time, only its parent is read again and it is kept.
+     *
+     * @param previous the processes read before, at the same index as their pid, or null
+     * @return the processes at the same index as their pid, null for those that are gone
+     */
+    static LinuxProcess[] read(final int[] pids, final LinuxProcess[] previous, ExecutorService executor)
+            throws InterruptedException {
+        final LinuxProcess[] processes = new LinuxProcess[pids.length];
+        if (pids.length <= CHUNK_SIZE) {
+            read(pids, previous, processes, 0, pids.length);
+            return processes;
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int start = 0; start < pids.length; start += CHUNK_SIZE) {
+            final int from = start;
+            final int to = Math.min(start + CHUNK_SIZE, pids.length);
+            tasks.add(new Callable<Void>() {
+
+                public Void call() {
+                    read(pids, previous, processes, from, to);
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new NativeAccessException("Failed to read the processes. " + cause);
+            }
+        }
+        return processes;
+    }
+
+    private static void read(int[] pids, LinuxProcess[] previous, LinuxProcess[] processes, int from, int to) {
+        ProcReader reader = READERS.get();
+        for (int i = from; i < to; i++) {
+            processes[i] = reader.read(pids[i], previous != null ? previous[i] : null);
+        }
+    }
+
+    /**
+     * Reads one process, or returns null if there is no such process.
+     */
+    static LinuxProcess read(int pid) {
+        return READERS.get().read(pid, null);
+    }
+
+    /**
+     * Tells whether the process with the start time is there and has not exited.
+     */
+    static boolean isRunning(int pid, long startTime) {
+        return READERS.get().isRunning(pid, startTime);
+    }
+
+    /**
+     * Sets the children of each process from the parent pids.
+     */
+    static void linkChildren(List<LinuxProcess> processes) {
+        Map<Integer, List<LinuxProcess>> children = new HashMap<Integer, List<LinuxProcess>>();
+        for (LinuxProcess process : processes) {
+            List<LinuxProcess> siblings = children.get(process.getPpid());
+            if (siblings == null) {
+                siblings = new ArrayList<LinuxProcess>(2);
+                children.put(process.getPpid(), siblings);
+            }
+            siblings.add(process);
+        }
+        for (LinuxProcess process : processes) {
+            List<LinuxProcess> list = children.get(process.getPid());
+            process.setChildren(list != null ? Collections.unmodifiableList(list) : Collections.<LinuxProcess>emptyList());
+        }
+    }
+
+    /**
+     * Parses a decimal pid, returns -1 if the name is not a number.
+     */
+    static int parsePid(byte[] name, int length) {
+        if (length == 0 || length > 9) {
+            return -1;
+        }
+        int pid = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = name[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            pid = pid * 10 + digit;
+        }
+        return pid;
+    }
+
+    /**
+     * The buffers of one thread.
+     */
+    private static final class ProcReader {
+
+        private final Memory buffer = new Memory(BUFFER_SIZE);
+        private final NativeLong bufferLength = new NativeLong(BUFFER_SIZE);
+        // holds the file last read, grows to the largest one
+        private byte[] bytes = new byte[BUFFER_SIZE];
+        private int length;
+
+        LinuxProcess read(int pid, LinuxProcess previous) {
+            // the files are opened relative to the directory, so that they are all of the same
+            // process even if the pid is reused meanwhile
+            int dirFd = DirectGNUCLibrary.openat(AT_FDCWD, "/proc/" + pid, O_RDONLY | O_DIRECTORY | O_CLOEXEC);
+            if (dirFd < 0) {
+                return null;
+            }
+            try {
+                if (readFile(dirFd, "stat") != 0) {
+                    return null;
+                }
+                int open = indexOf('(', 0);
+                int close = endOfName();
+                if (open < 0 || close <= open) {
+                    return null;
+                }
+                String name = LinuxProcess.decode(bytes, open + 1, close - open - 1);
+                // after the name: state ppid pgrp session tty_nr tpgid flags minflt cminflt majflt
+                // cmajflt utime stime cutime cstime priority nice num_threads itrealvalue starttime
+                int field = skipFields(close + 2, 1);
+                int ppid = (int) parseLong(field);
+                field = skipFields(field, 18);
+                long startTime = parseLong(field);
+                long executableDevice = -1;
+                long executableInode = -1;
+                NativeFileStat stat = NativeFileStat.current();
+                if (stat.statAt(dirFd, "exe", new File(PROC, pid + "/exe"), true) == 0) {
+                    executableDevice = stat.getDevice();
+                    executableInode = stat.getInode();
+                }
+                if (previous != null && previous.getStartTime() == startTime && previous.getName().equals(name)
+                        && previous.hasExecutable(executableDevice, executableInode)) {
+                    // the same process, it might have been given to a new parent
+                    return previous.getPpid() == ppid ? previous : previous.withParent(ppid);
+                }
+                // a new process, or one that ran another program since, with a new command
+                // line and environment
+
+                byte[] commandLine = readFile(dirFd, "cmdline") == 0 ? Arrays.copyOf(bytes, length) : new byte[0];
+                byte[] environment = readFile(dirFd, "environ") == 0 ? Arrays.copyOf(bytes, length) : new byte[0];
+                return new LinuxProcess(pid, ppid, name, startTime, executableDevice, executableInode, commandLine,
+                        environment);
+            } finally {
+                DirectGNUCLibrary.close(dirFd);
+            }
+        }
+
+        /**
+         * Tells whether the process with the start time is there and has not exited.
+         */
+        boolean isRunning(int pid, long startTime) {
+            if (readFile(AT_FDCWD, "/proc/" + pid + "/stat") != 0) {
+                return false;
+            }
+            int close = endOfName();
+            if (close < 0 || close + 2 >= length) {
+                return false;
+            }
+            // zombies have exited, they are only waiting for their parent
+            byte state = bytes[close + 2];
+            return state != 'Z' && state != 'X' && parseLong(skipFields(close + 2, 19)) == startTime;
+        }
+
+        /**
+         * Returns the offset of the ')' after the name in the stat file last read, or -1.
+         */
+        private int endOfName() {
+            // the name is in parentheses and may contain anything, even a ')'
+            int close = length - 1;
+            while (close >= 0 && bytes[close] != ')') {
+                close--;
+            }
+            return close;
+        }
+
+        /**
+         * Reads the whole file into {@link #bytes}.
+         *
+         * @return 0 or the errno
+         */
+        private int readFile(int dirFd, String name) {
+            length = 0;
+            int fd = DirectGNUCLibrary.openat(dirFd, name, O_RDONLY | O_CLOEXEC);
+            if (fd < 0) {
+                return Native.getLastError();
+            }
+            try {
+                while (true) {
+                    int n = LIBC.read(fd, buffer, bufferLength);
+                    if (n < 0) {
+                        int err = Native.getLastError();
+                        if (err == EINTR) {
+                            continue;
+                        }
+                        return err;
+                    }
+                    if (n == 0) {
+                        return 0;
+                    }
+                    if (length + n > bytes.length) {
+                        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + n));
+                    }
+                    buffer.read(0, bytes, length, n);
+                    length += n;
+                }
+            } finally {
+                DirectGNUCLibrary.close(fd);
+            }
+        }
+
+        private int indexOf(int b, int from) {
+            for (int i = from; i < length; i++) {
+                if (bytes[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the offset of the field {@code count} space separated fields after the one at {@code offset}.
+         */
+        private int skipFields(int offset, int count) {
+            for (int i = 0; i < count && offset >= 0; i++) {
+                offset = indexOf(' ', offset);
+                if (offset >= 0) {
+                    offset++;
+                }
+            }
+            return offset;
+        }
+
+        private long parseLong(int offset) {
+            if (offset < 0) {
+                return -1;
+            }
+            boolean negative = offset < length && bytes[offset] == '-';
+            long value = 0;
+            for (int i = negative ? offset + 1 : offset; i < length; i++) {
+                int digit = bytes[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+    }
+}
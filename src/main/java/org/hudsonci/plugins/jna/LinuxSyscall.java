@@ -0,0 +1,47 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+/**
+ * Linux system call numbers for calls that older glibc versions have no wrapper for,
+ * to be made through {@link GNUCLibrary#syscall}. Numbers before 403 differ per architecture,
+ * calls added since then have the same number everywhere.
+ */
+final class LinuxSyscall {
+
+    private static final String ARCH = System.getProperty("os.arch", "");
+    private static final boolean X86_64 = ARCH.equals("amd64") || ARCH.equals("x86_64");
+    private static final boolean AARCH64 = ARCH.equals("aarch64");
+
+    /**
+     * -1 on architectures we do not know the number for.
+     */
+    static final int GETDENTS64 = X86_64 ? 217 : AARCH64 ? 61 : -1;
+    static final int RENAMEAT2 = X86_64 ? 316 : AARCH64 ? 276 : -1;
+    static final int PIDFD_SEND_SIGNAL = 424;
+    static final int PIDFD_OPEN = 434;
+
+    private LinuxSyscall() {
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+import static org.hudsonci.plugins.jna.InotifyLibrary.*;
+
+/**
+ * Serves a growing log file, like the console output of a running build, from memory
+ * mapped chunks shared by all its readers. The file is mapped in fixed size chunks and
+ * a chunk is only mapped once the file reaches it; growth is learnt from inotify
+ * IN_MODIFY events rather than by polling the file. Readers get read-only
+ * {@link ByteBuffer} views of the mapping, so no data is copied.
+ *
+ * <p>
+ * One tailer is shared by everyone who opens the same file, and the mapping is released
+ * when the last of them closes it. A buffer must not be used after the tailer it came
+ * from is closed, and the file must only be appended to: reading a page that was
+ * truncated away crashes the JVM. Linux only.
+ */
+public class LogTailer {
+
+    private static final Logger LOGGER = Logger.getLogger(LogTailer.class.getName());
+
+    // virtual address space only, pages are read in as they are touched
+    private static final long CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final NativeLong CHUNK_LENGTH = new NativeLong(CHUNK_SIZE);
+
+    private static final int EVENT_BUFFER_SIZE = 16 * 1024;
+
+    // open tailers by file and by inotify watch, guarded by LogTailer.class
+    private static final Map<File, LogTailer> TAILERS = new HashMap<File, LogTailer>();
+    private static final Map<Integer, LogTailer> TAILERS_BY_WD = new HashMap<Integer, LogTailer>();
+    private static int inotifyFd = -1;
+
+    private final File file;
+    private final int fd;
+    private final int wd;
+    private final List<Pointer> chunks = new ArrayList<Pointer>();
+    private int references = 1;
+    private volatile long size;
+    private volatile boolean truncated;
+    private boolean closed;
+
+    private LogTailer(File file, int fd, int wd) {
+        this.file = file;
+        this.fd = fd;
+        this.wd = wd;
+    }
+
+    /**
+     * Opens the tailer of the file, shared with the other readers of the file. Each
+     * call must be matched by a call to {@link #close()}.
+     */
+    static synchronized LogTailer open(File file) throws NativeAccessException {
+        File key = file.getAbsoluteFile();
+        LogTailer tailer = TAILERS.get(key);
+        if (tailer != null) {
+            tailer.references++;
+            return tailer;
+        }
+        if (inotifyFd < 0) {
+            startWatching();
+        }
+        int fd = DirectGNUCLibrary.openat(AT_FDCWD, key.getPath(), O_RDONLY | O_CLOEXEC);
+        if (fd < 0) {
+            throw new NativeAccessException("Failed to open " + file + ". " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        int wd = INOTIFY.inotify_add_watch(inotifyFd, key.getPath(), IN_MODIFY);
+        if (wd < 0) {
+            int err = Native.getLastError();
+            DirectGNUCLibrary.close(fd);
+            throw new NativeAccessException("Failed to watch " + file + ". " + DirectGNUCLibrary.strerror(err));
+        }
+        tailer = new LogTailer(key, fd, wd);
+        // inotify hands out the same descriptor for a file watched twice, e.g. through a hard link
+        if (TAILERS_BY_WD.containsKey(wd)) {
+            DirectGNUCLibrary.close(fd);
+            tailer = TAILERS_BY_WD.get(wd);
+            tailer.references++;
+            return tailer;
+        }
+        tailer.refresh();
+        TAILERS.put(key, tailer);
+        TAILERS_BY_WD.put(wd, tailer);
+        return tailer;
+    }
+
+    /**
+     * The size of the file, as of the last change reported for it.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns a read-only view of the log from {@code offset}, of at most {@code maxLength}
+     * bytes, directly on the mapping. A view ends at the current size of the file and may
+     * end earlier, at the end of a chunk; it is empty at the end of the file.
+     */
+    public ByteBuffer slice(long offset, int maxLength) throws NativeAccessException {
+        if (truncated) {
+            throw new NativeAccessException(file + " was truncated");
+        }
+        long end = Math.min(size, offset + maxLength);
+        if (offset >= end) {
+            return ByteBuffer.allocate(0);
+        }
+        int index = (int) (offset / CHUNK_SIZE);
+        long chunkOffset = offset % CHUNK_SIZE;
+        long length = Math.min(end - offset, CHUNK_SIZE - chunkOffset);
+        return chunk(index).getByteBuffer(chunkOffset, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Waits for the file to grow beyond {@code knownSize}.
+     *
+     * @return the new size, or {@code knownSize} if it did not grow in time
+     */
+    public long awaitGrowth(long knownSize, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this) {
+            long remaining;
+            while (size <= knownSize && !truncated && !closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                wait(remaining);
+            }
+        }
+        return Math.max(size, knownSize);
+    }
+
+    /**
+     * Releases this reader's use of the tailer, unmapping the file if it was the last one.
+     */
+    public void close() {
+        synchronized (LogTailer.class) {
+            if (--references > 0) {
+                return;
+            }
+            TAILERS.remove(file);
+            TAILERS_BY_WD.remove(wd);
+            INOTIFY.inotify_rm_watch(inotifyFd, wd);
+        }
+        synchronized (this) {
+            closed = true;
+            for (Pointer chunk : chunks) {
+                if (chunk != null) {
+                    LIBC.munmap(chunk, CHUNK_LENGTH);
+                }
+            }
+            chunks.clear();
+            notifyAll();
+        }
+        DirectGNUCLibrary.close(fd);
+    }
+
+    private synchronized Pointer chunk(int index) throws NativeAccessException {
+        if (closed) {
+            throw new NativeAccessException("Tailer of " + file + " is closed");
+        }
+        while (chunks.size() <= index) {
+            chunks.add(null);
+        }
+        Pointer chunk = chunks.get(index);
+        if (chunk == null) {
+            // the whole chunk is mapped, the pages past the end of the file are not touched
+            NativeLong address = LIBC.mmap64(null, CHUNK_LENGTH, PROT_READ, MAP_SHARED, fd, index * CHUNK_SIZE);
+            if (address.longValue() == -1) {
+                throw new NativeAccessException("Failed to map " + file + ". " + DirectGNUCLibrary.strerror(Native.getLastError()));
+            }
+            chunk = new Pointer(address.longValue());
+            chunks.set(index, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Reads the new size of the file and wakes up the readers waiting for it.
+     */
+    private void refresh() {
+        NativeFileStat stat = NativeFileStat.current();
+        if (stat.statFd(fd, file) != 0) {
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            long newSize = stat.getSize();
+            if (newSize < size) {
+                truncated = true;
+            }
+            size = newSize;
+            notifyAll();
+        }
+    }
+
+    private static void startWatching() throws NativeAccessException {
+        final int fd;
+        try {
+            fd = INOTIFY.inotify_init1(IN_NONBLOCK | IN_CLOEXEC);
+        } catch (LinkageError e) {
+            throw new NativeAccessException("inotify is not available. " + e.getLocalizedMessage());
+        }
+        if (fd < 0) {
+            throw new NativeAccessException("Failed to initialize inotify. " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        inotifyFd = fd;
+        Thread reader = new Thread(new Runnable() {
+
+            public void run() {
+                readEvents(fd);
+            }
+        }, "Log tailer inotify reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private static void readEvents(int fd) {
+        Memory pollFd = new Memory(SIZEOF_POLLFD);
+        pollFd.setInt(0, fd);
+        pollFd.setShort(4, (short) POLLIN);
+        Memory buffer = new Memory(EVENT_BUFFER_SIZE);
+        NativeLong bufferSize = new NativeLong(EVENT_BUFFER_SIZE);
+        List<LogTailer> modified = new ArrayList<LogTailer>();
+        while (true) {
+            try {
+                pollFd.setShort(6, (short) 0);
+                if (LIBC.poll(pollFd, 1, -1) <= 0) {
+                    continue;
+                }
+                int length = LIBC.read(fd, buffer, bufferSize);
+                if (length <= 0) {
+                    continue;
+                }
+                modified.clear();
+                synchronized (LogTailer.class) {
+                    for (int offset = 0; offset < length;) {
+                        int wd = buffer.getInt(offset);
+                        int mask = buffer.getInt(offset + 4);
+                        offset += SIZEOF_INOTIFY_EVENT + buffer.getInt(offset + 12);
+                        if ((mask & IN_Q_OVERFLOW) != 0) {
+                            // events were lost, any file may have grown
+                            modified.addAll(TAILERS_BY_WD.values());
+                        } else {
+                            LogTailer tailer = TAILERS_BY_WD.get(wd);
+                            // a burst of writes is reported as many events, refresh once
+                            if (tailer != null && !modified.contains(tailer)) {
+                                modified.add(tailer);
+                            }
+                        }
+                    }
+                }
+                for (LogTailer tailer : modified) {
+                    tailer.refresh();
+                }
+            } catch (Throwable t) {
+                LOGGER.log(Level.WARNING, "Failed to read log tailer events", t);
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import java.io.Closeable;
+import java.io.File;
+import java.util.LinkedList;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Streams the entries of a directory, read in large batches with getdents64(2). Where
+ * libc has no wrapper for it and its system call number is not known, such as on ppc64le
+ * or s390x with glibc before 2.30, the batches are filled from readdir64(3) instead.
+ *
+ * <p>
+ * The name, inode and type of each entry come straight from the kernel, so telling files
+ * from directories needs no stat. The batch buffer is off-heap and reused by the next reader
+ * opened on the same thread, so walking a tree of any size takes constant memory besides one
+ * buffer per level of nesting. "." and ".." are skipped.
+ *
+ * <pre>
+ * NativeDirectoryReader reader = unixSupport.openDirectory(dir);
+ * try {
+ *     while (reader.next()) {
+ *         if (reader.getType() == NativeDirectoryReader.DT_DIR) ...
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ *
+ * Linux only. A reader is not thread safe.
+ */
+public class NativeDirectoryReader implements Closeable {
+
+    // d_type values
+    public static final int DT_UNKNOWN = 0;
+    public static final int DT_FIFO = 1;
+    public static final int DT_CHR = 2;
+    public static final int DT_DIR = 4;
+    public static final int DT_BLK = 6;
+    public static final int DT_REG = 8;
+    public static final int DT_LNK = 10;
+    public static final int DT_SOCK = 12;
+
+    // struct linux_dirent64 layout, the same on every architecture
+    private static final int D_INO = 0;
+    private static final int D_RECLEN = 16;
+    private static final int D_TYPE = 18;
+    private static final int D_NAME = 19;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // largest struct dirent64, with a name of 255 bytes
+    private static final int MAX_ENTRY_SIZE = 280;
+    private static final NativeLong BUFFER_LENGTH = new NativeLong(BUFFER_SIZE);
+
+    /**
+     * Cleared if libc has no getdents64 wrapper, the system call is then made directly, or
+     * where its number is not known, the entries are read with readdir64.
+     */
+    private static volatile boolean getdentsWrapper = true;
+
+    // buffers of the readers closed on this thread, ready for reuse
+    private static final ThreadLocal<LinkedList<Memory>> FREE_BUFFERS = new ThreadLocal<LinkedList<Memory>>() {
+
+        @Override
+        protected LinkedList<Memory> initialValue() {
+            return new LinkedList<Memory>();
+        }
+    };
+
+    private final File dir;
+    private int fd;
+    // the stream of readdir64 on a duplicate of fd, where getdents64 can not be called
+    private Pointer dirStream;
+    private Memory buffer;
+    private int length;
+    private int offset;
+    private int entry = -1;
+    private int nameLength = -1;
+
+    /**
+     * Takes over the open directory descriptor {@code fd}, which is closed by {@link #close()}.
+     */
+    NativeDirectoryReader(int fd, File dir) {
+        this.fd = fd;
+        this.dir = dir;
+        LinkedList<Memory> free = FREE_BUFFERS.get();
+        buffer = free.isEmpty() ? new Memory(BUFFER_SIZE) : free.removeFirst();
+    }
+
+    /**
+     * Opens the directory {@code name} relative to the directory descriptor {@code dirFd}, without
+     * following a symlink.
+     *
+     * @return the reader, or null if the directory could not be opened, with the cause in
+     *      {@link Native#getLastError()}
+     */
+    static NativeDirectoryReader openAt(int dirFd, String name, File dir) {
+        int fd = DirectGNUCLibrary.openat(dirFd, name, O_RDONLY | O_DIRECTORY | O_NOFOLLOW | O_CLOEXEC);
+        if (fd < 0) {
+            return null;
+        }
+        return new NativeDirectoryReader(fd, dir);
+    }
+
+    /**
+     * Advances to the next entry.
+     *
+     * @return false at the end of the directory
+     */
+    public boolean next() throws NativeAccessException {
+        while (true) {
+            if (entry >= 0) {
+                offset += buffer.getShort(entry + D_RECLEN) & 0xffff;
+            }
+            if (offset >= length) {
+                if (!fill()) {
+                    entry = -1;
+                    return false;
+                }
+            }
+            entry = offset;
+            nameLength = -1;
+            if (!isDotOrDotDot()) {
+                return true;
+            }
+        }
+    }
+
+    private boolean fill() throws NativeAccessException {
+        if (fd < 0) {
+            throw new IllegalStateException("Directory reader is closed: " + dir);
+        }
+        int r = getdents();
+        if (r < 0) {
+            int err = Native.getLastError();
+            throw new NativeAccessException("Failed to read directory " + dir + ". " + DirectGNUCLibrary.strerror(err));
+        }
+        length = r;
+        offset = 0;
+        entry = -1;
+        return r > 0;
+    }
+
+    private int getdents() {
+        if (getdentsWrapper) {
+            try {
+                return LIBC.getdents64(fd, buffer, BUFFER_LENGTH).intValue();
+            } catch (LinkageError e) {
+                getdentsWrapper = false;
+            }
+        }
+        if (LinuxSyscall.GETDENTS64 < 0) {
+            return readdir();
+        }
+        return LIBC.syscall(new NativeLong(LinuxSyscall.GETDENTS64), new NativeLong(fd), buffer, BUFFER_LENGTH).intValue();
+    }
+
+    /**
+     * Fills the buffer with entries from readdir64, the way getdents64 would.
+     */
+    private int readdir() {
+        if (dirStream == null) {
+            // closedir closes the duplicate, fd stays with the reader
+            int dup = DirectGNUCLibrary.fcntl(fd, F_DUPFD_CLOEXEC, 0);
+            if (dup < 0) {
+                return -1;
+            }
+            dirStream = LIBC.fdopendir(dup);
+            if (dirStream == null) {
+                // a successful close leaves errno as it is
+                DirectGNUCLibrary.close(dup);
+                return -1;
+            }
+        }
+        int n = 0;
+        while (n + MAX_ENTRY_SIZE <= BUFFER_SIZE) {
+            Pointer entry = LIBC.readdir64(dirStream);
+            if (entry == null) {
+                break;
+            }
+            int length = entry.getShort(D_RECLEN) & 0xffff;
+            buffer.write(n, entry.getByteArray(0, length), 0, length);
+            n += length;
+        }
+        return n;
+    }
+
+    private boolean isDotOrDotDot() {
+        if (buffer.getByte(entry + D_NAME) != '.') {
+            return false;
+        }
+        byte second = buffer.getByte(entry + D_NAME + 1);
+        return second == 0 || (second == '.' && buffer.getByte(entry + D_NAME + 2) == 0);
+    }
+
+    /**
+     * The d_type of the current entry, one of the DT_ constants. File systems that do not
+     * record the type report {@link #DT_UNKNOWN}, the caller then has to stat the entry.
+     */
+    public int getType() {
+        return buffer.getByte(entry + D_TYPE) & 0xff;
+    }
+
+    public long getInode() {
+        return buffer.getLong(entry + D_INO);
+    }
+
+    /**
+     * Length of the name of the current entry in bytes.
+     */
+    public int getNameLength() {
+        if (nameLength < 0) {
+            int n = 0;
+            while (buffer.getByte(entry + D_NAME + n) != 0) {
+                n++;
+            }
+            nameLength = n;
+        }
+        return nameLength;
+    }
+
+    /**
+     * Copies the name of the current entry, as bytes in the file system encoding, without
+     * creating any object.
+     *
+     * @return the number of bytes copied, see {@link #getNameLength()}
+     */
+    public int copyName(byte[] dest, int destOffset) {
+        int n = getNameLength();
+        buffer.read(entry + D_NAME, dest, destOffset, n);
+        return n;
+    }
+
+    /**
+     * Name of the current entry.
+     */
+    public String getName() {
+        return buffer.getString(entry + D_NAME);
+    }
+
+    /**
+     * Opens the current entry as a directory, relative to this one.
+     *
+     * @throws NativeAccessException if it is not a directory or can not be opened
+     */
+    public NativeDirectoryReader openSubdirectory() throws NativeAccessException {
+        String name = getName();
+        NativeDirectoryReader reader = openAt(fd, name, new File(dir, name));
+        if (reader == null) {
+            throw new NativeAccessException("Failed to open directory " + new File(dir, name) + ". "
+                    + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        return reader;
+    }
+
+    /**
+     * Descriptor of the directory, for *at calls on its entries. Owned by the reader.
+     */
+    int getFd() {
+        return fd;
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Like {@link #close()}, but leaves the descriptor open, for the caller to close.
+     */
+    void detach() {
+        if (fd >= 0) {
+            closeDirStream();
+            fd = -1;
+            FREE_BUFFERS.get().addFirst(buffer);
+            buffer = null;
+        }
+    }
+
+    public void close() {
+        if (fd >= 0) {
+            closeDirStream();
+            DirectGNUCLibrary.close(fd);
+            fd = -1;
+            FREE_BUFFERS.get().addFirst(buffer);
+            buffer = null;
+        }
+    }
+
+    private void closeDirStream() {
+        if (dirStream != null) {
+            LIBC.closedir(dirStream);
+            dirStream = null;
+        }
+    }
+}
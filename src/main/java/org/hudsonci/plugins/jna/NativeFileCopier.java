@@ -0,0 +1,585 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Copies files without moving the data through the Java heap: copy_file_range first,
+ * sendfile where that is not possible, and a read/write loop through an off-heap buffer
+ * as the last resort. Mode and ownership are set on the open descriptors. An existing
+ * destination is replaced, never written through: it might be a symlink, or a hard link
+ * to the source.
+ *
+ * <p>
+ * Trees can also be cloned with hard links, in which case only the files selected as
+ * mutable, or those that can not be linked, are copied, or with reflinks (FICLONE) on
+ * file systems that share extents between files, like btrfs and XFS. The destination
+ * tree is created and filled relative to the descriptors of its directories, which are
+ * opened without following symlinks. Linux only.
+ */
+class NativeFileCopier {
+
+    // largest count the kernel transfers in one call
+    private static final NativeLong CHUNK = new NativeLong(0x7ffff000);
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    /**
+     * Cleared once the call turns out to be missing, so that we stop trying.
+     */
+    private static volatile boolean copyFileRangeAvailable = true;
+    private static volatile boolean sendfileAvailable = true;
+
+    /**
+     * Whether FICLONE works, by st_dev of the destination file system. Absent until the
+     * first clone on that file system succeeds or fails.
+     */
+    private static final Map<Long, Boolean> REFLINK_SUPPORT = new ConcurrentHashMap<Long, Boolean>();
+
+    /**
+     * Returned by {@link #copy(int, String, File, int, String, File, boolean)} when the file
+     * could not be reflinked and copying was not wanted.
+     */
+    private static final long NOT_CLONED = Long.MIN_VALUE;
+
+    private static final ThreadLocal<Memory> BUFFER = new ThreadLocal<Memory>() {
+
+        @Override
+        protected Memory initialValue() {
+            return new Memory(BUFFER_SIZE);
+        }
+    };
+
+    private final CopyOptions options;
+    private final AtomicLong filesCopied = new AtomicLong();
+    private final AtomicLong filesLinked = new AtomicLong();
+    private final AtomicLong filesReflinked = new AtomicLong();
+    private final AtomicLong bytesCopied = new AtomicLong();
+
+    /**
+     * Whether files are reflinked, cleared when the source turns out to be on another
+     * file system.
+     */
+    private volatile boolean reflink;
+    private long destDevice;
+
+    NativeFileCopier(CopyOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Copies the file {@code src} to {@code dest}, following a symlink at {@code src} but
+     * not at {@code dest}.
+     *
+     * @return the number of bytes copied, or the negated errno on failure
+     */
+    long copyFile(File src, File dest) {
+        File from = src.getAbsoluteFile();
+        File to = dest.getAbsoluteFile();
+        int srcDirFd = openParent(from);
+        if (srcDirFd < 0) {
+            return -Native.getLastError();
+        }
+        try {
+            int destDirFd = openParent(to);
+            if (destDirFd < 0) {
+                return -Native.getLastError();
+            }
+            try {
+                return copy(srcDirFd, from.getName(), from, destDirFd, to.getName(), to, false);
+            } finally {
+                DirectGNUCLibrary.close(destDirFd);
+            }
+        } finally {
+            DirectGNUCLibrary.close(srcDirFd);
+        }
+    }
+
+    private static int openParent(File file) {
+        File parent = file.getParentFile();
+        return DirectGNUCLibrary.openat(AT_FDCWD, parent == null ? "/" : parent.getPath(), O_RDONLY | O_DIRECTORY | O_CLOEXEC);
+    }
+
+    /**
+     * Copies {@code srcName}, relative to {@code srcDirFd}, to {@code destName}, relative to
+     * {@code destDirFd}, reflinking instead of copying the data if enabled and possible. An
+     * existing destination is unlinked and created again, and removed if the copy fails.
+     *
+     * @param src the same file as {@code srcDirFd}/{@code srcName}, for reporting
+     * @param dest the same file as {@code destDirFd}/{@code destName}, for reporting
+     * @param reflinkOnly whether to give up, returning {@link #NOT_CLONED}, if the file
+     * can not be reflinked
+     * @return the number of bytes copied, or the negated errno on failure
+     */
+    private long copy(int srcDirFd, String srcName, File src, int destDirFd, String destName, File dest, boolean reflinkOnly) {
+        boolean tryReflink = reflink && !Boolean.FALSE.equals(REFLINK_SUPPORT.get(destDevice));
+        if (reflinkOnly && !tryReflink) {
+            return NOT_CLONED;
+        }
+        // O_NONBLOCK so that opening a FIFO does not hang, it is rejected below
+        int in = DirectGNUCLibrary.openat(srcDirFd, srcName, O_RDONLY | O_NONBLOCK | O_CLOEXEC);
+        if (in < 0) {
+            return -Native.getLastError();
+        }
+        try {
+            NativeFileStat stat = NativeFileStat.current();
+            int err = stat.statFd(in, src);
+            if (err != 0) {
+                return -err;
+            }
+            if (!stat.isRegularFile()) {
+                return -EOPNOTSUPP;
+            }
+            int mode = stat.getMode() & 07777;
+            int uid = stat.getUid();
+            int gid = stat.getGid();
+            long size = stat.getSize();
+            long device = stat.getDevice();
+            long inode = stat.getInode();
+
+            err = stat.statAt(destDirFd, destName, dest, false);
+            if (err == 0) {
+                if (!options.isOverwrite()) {
+                    return -EEXIST;
+                }
+                if (stat.getDevice() == device && stat.getInode() == inode
+                        && isSameEntry(srcDirFd, srcName, src, destDirFd, destName, dest)) {
+                    return -EINVAL;
+                }
+                // unlinked rather than truncated, it might be a symlink or a link to the source
+                if (DirectGNUCLibrary.unlinkat(destDirFd, destName, 0) != 0 && Native.getLastError() != ENOENT) {
+                    return -Native.getLastError();
+                }
+            } else if (err != ENOENT) {
+                return -err;
+            }
+
+            int flags = O_WRONLY | O_CREAT | O_EXCL | O_NOFOLLOW | O_CLOEXEC;
+            int out = LIBC.openat(destDirFd, destName, flags, options.isPreserveMode() ? 0600 : 0666);
+            if (out < 0) {
+                return -Native.getLastError();
+            }
+            long copied;
+            boolean cloned = tryReflink && reflink(in, out);
+            if (cloned) {
+                copied = size;
+            } else if (reflinkOnly) {
+                copied = NOT_CLONED;
+            } else {
+                copied = copyData(in, out);
+            }
+            // ownership first, chown clears the set-user-ID and set-group-ID bits
+            if (copied >= 0 && options.isPreserveOwnership() && LIBC.fchown(out, uid, gid) != 0) {
+                copied = -Native.getLastError();
+            }
+            if (copied >= 0 && options.isPreserveMode() && DirectGNUCLibrary.fchmod(out, mode) != 0) {
+                copied = -Native.getLastError();
+            }
+            if (DirectGNUCLibrary.close(out) != 0 && copied >= 0) {
+                copied = -Native.getLastError();
+            }
+            if (copied < 0) {
+                // created by this call, whatever it replaced is gone already
+                DirectGNUCLibrary.unlinkat(destDirFd, destName, 0);
+                return copied;
+            }
+            if (cloned) {
+                filesReflinked.incrementAndGet();
+            } else {
+                filesCopied.incrementAndGet();
+                bytesCopied.addAndGet(copied);
+            }
+            return copied;
+        } finally {
+            DirectGNUCLibrary.close(in);
+        }
+    }
+
+    /**
+     * Whether the two names are the same directory entry, rather than two links to one file.
+     * Assumed when it can not be told.
+     */
+    private static boolean isSameEntry(int srcDirFd, String srcName, File src, int destDirFd, String destName, File dest) {
+        if (!srcName.equals(destName)) {
+            return false;
+        }
+        NativeFileStat stat = NativeFileStat.current();
+        if (stat.statFd(srcDirFd, src.getAbsoluteFile().getParentFile()) != 0) {
+            return true;
+        }
+        long device = stat.getDevice();
+        long inode = stat.getInode();
+        if (stat.statFd(destDirFd, dest.getAbsoluteFile().getParentFile()) != 0) {
+            return true;
+        }
+        return stat.getDevice() == device && stat.getInode() == inode;
+    }
+
+    /**
+     * Makes {@code out} share the extents of {@code in}, remembering whether the file
+     * system supports it.
+     *
+     * @return whether {@code out} is now a clone of {@code in}
+     */
+    private boolean reflink(int in, int out) {
+        try {
+            if (LIBC.ioctl(out, FICLONE, in) == 0) {
+                REFLINK_SUPPORT.put(destDevice, Boolean.TRUE);
+                return true;
+            }
+        } catch (LinkageError e) {
+            reflink = false;
+            return false;
+        }
+        int err = Native.getLastError();
+        if (err == EXDEV) {
+            // the source is on another file system, so are the rest of the files
+            reflink = false;
+        } else if (err == EOPNOTSUPP || err == ENOTTY || err == ENOSYS) {
+            REFLINK_SUPPORT.put(destDevice, Boolean.FALSE);
+        }
+        // anything else, like a swap file or an immutable target, only concerns this file
+        return false;
+    }
+
+    /**
+     * Copies from the current offset of {@code in} to its end.
+     *
+     * @return the number of bytes copied, or the negated errno on failure
+     */
+    static long copyData(int in, int out) {
+        long total = 0;
+        if (copyFileRangeAvailable) {
+            try {
+                while (true) {
+                    long n = LIBC.copy_file_range(in, null, out, null, CHUNK, 0).longValue();
+                    if (n > 0) {
+                        total += n;
+                        continue;
+                    }
+                    if (n == 0) {
+                        return total;
+                    }
+                    int err = Native.getLastError();
+                    if (total > 0 || !isUnsupported(err)) {
+                        return -err;
+                    }
+                    if (err == ENOSYS) {
+                        copyFileRangeAvailable = false;
+                    }
+                    // e.g. across file systems on kernels before 5.3, try the next way
+                    break;
+                }
+            } catch (LinkageError e) {
+                copyFileRangeAvailable = false;
+            }
+        }
+
+        if (sendfileAvailable) {
+            try {
+                while (true) {
+                    long n = LIBC.sendfile(out, in, null, CHUNK).longValue();
+                    if (n > 0) {
+                        total += n;
+                        continue;
+                    }
+                    if (n == 0) {
+                        return total;
+                    }
+                    int err = Native.getLastError();
+                    if (total > 0 || !isUnsupported(err)) {
+                        return -err;
+                    }
+                    if (err == ENOSYS) {
+                        sendfileAvailable = false;
+                    }
+                    break;
+                }
+            } catch (LinkageError e) {
+                sendfileAvailable = false;
+            }
+        }
+
+        Memory buffer = BUFFER.get();
+        NativeLong size = new NativeLong(BUFFER_SIZE);
+        while (true) {
+            int n = LIBC.read(in, buffer, size);
+            if (n == 0) {
+                return total;
+            }
+            if (n < 0) {
+                return -Native.getLastError();
+            }
+            for (int written = 0; written < n;) {
+                long w = LIBC.write(out, buffer.share(written), new NativeLong(n - written)).longValue();
+                if (w < 0) {
+                    return -Native.getLastError();
+                }
+                written += w;
+            }
+            total += n;
+        }
+    }
+
+    private static boolean isUnsupported(int err) {
+        return err == ENOSYS || err == EXDEV || err == EINVAL || err == EOPNOTSUPP;
+    }
+
+    /**
+     * Copies the tree rooted at {@code src} to {@code dest}, directories in parallel.
+     * Regular files are copied, directories created and symlinks recreated with the same target.
+     */
+    CopyResult copyTree(File src, File dest, ExecutorService executor) throws InterruptedException {
+        return cloneTree(src, dest, executor, false, null);
+    }
+
+    /**
+     * Like {@link #copyTree(File, File, ExecutorService)}, but files are hard linked into
+     * {@code dest} unless {@code mutableFiles} accepts them or they can not be linked.
+     *
+     * @param mutableFiles selects the source files to copy, null to link every file
+     */
+    CopyResult linkTree(File src, File dest, ExecutorService executor, FileFilter mutableFiles) throws InterruptedException {
+        return cloneTree(src, dest, executor, true, mutableFiles);
+    }
+
+    /**
+     * Like {@link #copyTree(File, File, ExecutorService)}, but files are reflinked where
+     * the file system supports it, and otherwise hard linked or copied.
+     *
+     * @param linkFallback whether files that can not be reflinked are hard linked
+     */
+    CopyResult reflinkTree(File src, File dest, ExecutorService executor, boolean linkFallback) throws InterruptedException {
+        File parent = dest.getAbsoluteFile().getParentFile();
+        NativeFileStat stat = NativeFileStat.current();
+        if (parent != null && stat.statAt(AT_FDCWD, parent.getPath(), parent, true) == 0) {
+            destDevice = stat.getDevice();
+            reflink = true;
+        }
+        return cloneTree(src, dest, executor, linkFallback, null);
+    }
+
+    private CopyResult cloneTree(File src, File dest, ExecutorService executor, final boolean link,
+            final FileFilter mutableFiles) throws InterruptedException {
+        final File srcRoot = src.getAbsoluteFile();
+        final File destRoot = dest.getAbsoluteFile();
+        if (isWithin(destRoot, srcRoot)) {
+            throw new IllegalArgumentException(dest + " is inside " + src);
+        }
+        final int destParentFd = openParent(destRoot);
+        if (destParentFd < 0) {
+            List<FileOperationError> errors = new ArrayList<FileOperationError>();
+            errors.add(error(destRoot, Native.getLastError()));
+            return new CopyResult(0, 0, 0, 0, errors);
+        }
+        // the open destination directories, by source directory, until their subtree is done
+        final Map<File, Destination> destinations = new ConcurrentHashMap<File, Destination>();
+
+        List<FileOperationError> errors;
+        try {
+            errors = new NativeTreeWalker(new NativeTreeWalker.DirectoryVisitor() {
+
+                public int visit(int dirFd, String name, File file, int type) {
+                    File target = new File(destRoot, file.getPath().substring(srcRoot.getPath().length()));
+                    int destDirFd;
+                    String destName;
+                    if (file.equals(srcRoot)) {
+                        destDirFd = destParentFd;
+                        destName = destRoot.getName();
+                    } else {
+                        Destination parent = destinations.get(file.getParentFile());
+                        if (parent == null) {
+                            // the directory it is in could not be created
+                            return ENOENT;
+                        }
+                        destDirFd = parent.fd;
+                        destName = name;
+                    }
+                    switch (type) {
+                        case NativeTreeWalker.TYPE_DIRECTORY:
+                            return createDirectory(dirFd, name, file, destDirFd, destName, destinations);
+                        case NativeTreeWalker.TYPE_SYMLINK:
+                            return copySymlink(dirFd, name, destDirFd, destName);
+                        default:
+                            boolean linkable = link && (mutableFiles == null || !mutableFiles.accept(file));
+                            if (reflink) {
+                                long r = copy(dirFd, name, file, destDirFd, destName, target, linkable);
+                                if (r != NOT_CLONED) {
+                                    return r < 0 ? (int) -r : 0;
+                                }
+                            }
+                            if (linkable) {
+                                int err = link(dirFd, name, destDirFd, destName);
+                                if (err != EXDEV && err != EMLINK && err != EPERM) {
+                                    return err;
+                                }
+                                // another file system, too many links or linking not allowed: copy instead
+                            }
+                            long r = copy(dirFd, name, file, destDirFd, destName, target, false);
+                            return r < 0 ? (int) -r : 0;
+                    }
+                }
+
+                public int leave(File dir) {
+                    Destination directory = destinations.remove(dir);
+                    return directory == null ? 0 : finishDirectory(directory);
+                }
+            }, executor).walk(srcRoot);
+        } finally {
+            DirectGNUCLibrary.close(destParentFd);
+        }
+        return new CopyResult(filesCopied.get(), filesLinked.get(), filesReflinked.get(), bytesCopied.get(), errors);
+    }
+
+    /**
+     * Whether {@code file} is {@code dir} or below it, even through symlinks.
+     */
+    private static boolean isWithin(File file, File dir) {
+        NativeFileStat stat = NativeFileStat.current();
+        if (stat.statAt(AT_FDCWD, dir.getPath(), dir, true) != 0) {
+            return false;
+        }
+        long device = stat.getDevice();
+        long inode = stat.getInode();
+        for (File f = file; f != null; f = f.getParentFile()) {
+            if (stat.statAt(AT_FDCWD, f.getPath(), f, true) == 0 && stat.getDevice() == device && stat.getInode() == inode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int createDirectory(int dirFd, String name, File src, int destDirFd, String destName,
+            Map<File, Destination> destinations) {
+        NativeFileStat stat = NativeFileStat.current();
+        int err = stat.statAt(dirFd, name, src, false);
+        if (err != 0) {
+            return err;
+        }
+        if (LIBC.mkdirat(destDirFd, destName, 0700) != 0) {
+            err = Native.getLastError();
+            if (err != EEXIST) {
+                return err;
+            }
+        }
+        // an existing symlink is not followed out of the tree
+        int fd = DirectGNUCLibrary.openat(destDirFd, destName, O_RDONLY | O_DIRECTORY | O_NOFOLLOW | O_CLOEXEC);
+        if (fd < 0) {
+            return Native.getLastError();
+        }
+        destinations.put(src, new Destination(fd, stat.getMode() & 07777, stat.getUid(), stat.getGid()));
+        return 0;
+    }
+
+    /**
+     * Gives a destination directory its final mode once it is filled, as it might not be
+     * writable, and closes it.
+     */
+    private int finishDirectory(Destination directory) {
+        int err = 0;
+        if (options.isPreserveOwnership() && LIBC.fchown(directory.fd, directory.uid, directory.gid) != 0) {
+            err = Native.getLastError();
+        }
+        if (err == 0 && options.isPreserveMode() && DirectGNUCLibrary.fchmod(directory.fd, directory.mode) != 0) {
+            err = Native.getLastError();
+        }
+        DirectGNUCLibrary.close(directory.fd);
+        return err;
+    }
+
+    private int copySymlink(int dirFd, String name, int destDirFd, String destName) {
+        Memory buffer = BUFFER.get();
+        int r = DirectGNUCLibrary.readlinkat(dirFd, name, buffer, new NativeLong(BUFFER_SIZE - 1));
+        if (r < 0) {
+            return Native.getLastError();
+        }
+        buffer.setByte(r, (byte) 0);
+        String linkTarget = buffer.getString(0);
+        if (LIBC.symlinkat(linkTarget, destDirFd, destName) == 0) {
+            return 0;
+        }
+        int err = Native.getLastError();
+        if (err == EEXIST && options.isOverwrite() && DirectGNUCLibrary.unlinkat(destDirFd, destName, 0) == 0
+                && LIBC.symlinkat(linkTarget, destDirFd, destName) == 0) {
+            return 0;
+        }
+        return Native.getLastError();
+    }
+
+    /**
+     * Hard links {@code name}, relative to {@code dirFd}, as {@code destName}, relative to
+     * {@code destDirFd}.
+     *
+     * @return 0 on success, otherwise the errno
+     */
+    private int link(int dirFd, String name, int destDirFd, String destName) {
+        if (LIBC.linkat(dirFd, name, destDirFd, destName, 0) == 0) {
+            filesLinked.incrementAndGet();
+            return 0;
+        }
+        int err = Native.getLastError();
+        if (err == EEXIST && options.isOverwrite() && DirectGNUCLibrary.unlinkat(destDirFd, destName, 0) == 0) {
+            if (LIBC.linkat(dirFd, name, destDirFd, destName, 0) == 0) {
+                filesLinked.incrementAndGet();
+                return 0;
+            }
+            err = Native.getLastError();
+        }
+        return err;
+    }
+
+    /**
+     * An open destination directory, with the mode to give it once it is filled.
+     */
+    private static class Destination {
+
+        final int fd;
+        final int mode;
+        final int uid;
+        final int gid;
+
+        Destination(int fd, int mode, int uid, int gid) {
+            this.fd = fd;
+            this.mode = mode;
+            this.uid = uid;
+            this.gid = gid;
+        }
+    }
+
+    private static FileOperationError error(File file, int errno) {
+        return new FileOperationError(file, errno, LIBC.strerror(errno));
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import java.io.File;
+import org.jruby.ext.posix.FileStat;
+import org.jruby.ext.posix.POSIX;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Snapshot of the status of a file, filled by a single statx(2) call.
+ *
+ * <p>
+ * Each thread has one instance, backed by a native buffer that is reused for every call,
+ * so scanning a large number of files allocates nothing per file. The instance returned by
+ * {@link JnaNativeUnixSupport#stat(File)} is therefore overwritten by the next stat on the
+ * same thread; use {@link #copy()} to keep it.
+ *
+ * <p>
+ * Where statx is not available (non Linux platforms, glibc before 2.28, kernels before 4.11)
+ * the snapshot is filled from the jna-posix {@link FileStat} instead.
+ */
+public final class NativeFileStat {
+
+    // struct statx offsets, see linux/stat.h
+    private static final int SIZEOF_STATX = 256;
+    private static final int STX_NLINK = 16;
+    private static final int STX_UID = 20;
+    private static final int STX_GID = 24;
+    private static final int STX_MODE = 28;
+    private static final int STX_INO = 32;
+    private static final int STX_SIZE = 40;
+    private static final int STX_BLOCKS = 48;
+    private static final int STX_MTIME_SEC = 112;
+    private static final int STX_MTIME_NSEC = 120;
+    private static final int STX_DEV_MAJOR = 136;
+    private static final int STX_DEV_MINOR = 140;
+
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFDIR = 0040000;
+    private static final int S_IFREG = 0100000;
+    private static final int S_IFLNK = 0120000;
+
+    /**
+     * Cleared once statx turns out not to work, so that we stop trying.
+     */
+    private static volatile boolean statxAvailable = Platform.isLinux();
+
+    private static final ThreadLocal<NativeFileStat> CURRENT = new ThreadLocal<NativeFileStat>() {
+
+        @Override
+        protected NativeFileStat initialValue() {
+            return new NativeFileStat();
+        }
+    };
+
+    private Memory buffer;
+    private int mode;
+    private int uid;
+    private int gid;
+    private int linkCount;
+    private long size;
+    private long blocks;
+    private long lastModified;
+    private long inode;
+    private long device;
+
+    private NativeFileStat() {
+    }
+
+    /**
+     * The instance reused by the current thread.
+     */
+    static NativeFileStat current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Fills this snapshot with the status of {@code name}, relative to {@code dirFd}.
+     *
+     * @param file the same file as {@code dirFd}/{@code name}, used when statx is not available
+     * @param followLinks false to report on a symlink itself, like lstat
+     * @return 0 on success, otherwise the errno
+     */
+    int statAt(int dirFd, String name, File file, boolean followLinks) {
+        if (statxAvailable) {
+            try {
+                if (buffer == null) {
+                    buffer = new Memory(SIZEOF_STATX);
+                }
+                int flags = followLinks ? 0 : AT_SYMLINK_NOFOLLOW;
+                if (DirectGNUCLibrary.statx(dirFd, name, flags, STATX_BASIC_STATS, buffer) == 0) {
+                    readStatx();
+                    return 0;
+                }
+                int err = Native.getLastError();
+                // EPERM comes from seccomp filters that do not know statx yet
+                if (err != ENOSYS && err != EPERM) {
+                    return err;
+                }
+            } catch (LinkageError e) {
+                // statx is not in this libc, fall back.
+            }
+            statxAvailable = false;
+        }
+
+        try {
+            POSIX posix = PosixAPI.get();
+            String path = file.getAbsolutePath();
+            readFileStat(followLinks ? posix.stat(path) : posix.lstat(path));
+            return 0;
+        } catch (PosixException e) {
+            int err = Native.getLastError();
+            return err != 0 ? err : ENOENT;
+        }
+    }
+
+    /**
+     * Fills this snapshot with the status of the open descriptor {@code fd}.
+     *
+     * @param file the file {@code fd} refers to, used when statx is not available
+     * @return 0 on success, otherwise the errno
+     */
+    int statFd(int fd, File file) {
+        if (statxAvailable) {
+            try {
+                if (buffer == null) {
+                    buffer = new Memory(SIZEOF_STATX);
+                }
+                if (DirectGNUCLibrary.statx(fd, "", AT_EMPTY_PATH, STATX_BASIC_STATS, buffer) == 0) {
+                    readStatx();
+                    return 0;
+                }
+            } catch (LinkageError e) {
+                // fall back to a stat by name
+            }
+        }
+        return statAt(AT_FDCWD, file.getAbsolutePath(), file, true);
+    }
+
+    private void readStatx() {
+        mode = buffer.getShort(STX_MODE) & 0xffff;
+        uid = buffer.getInt(STX_UID);
+        gid = buffer.getInt(STX_GID);
+        linkCount = buffer.getInt(STX_NLINK);
+        size = buffer.getLong(STX_SIZE);
+        blocks = buffer.getLong(STX_BLOCKS);
+        inode = buffer.getLong(STX_INO);
+        lastModified = buffer.getLong(STX_MTIME_SEC) * 1000 + buffer.getInt(STX_MTIME_NSEC) / 1000000;
+        device = makedev(buffer.getInt(STX_DEV_MAJOR) & 0xffffffffL, buffer.getInt(STX_DEV_MINOR) & 0xffffffffL);
+    }
+
+    private void readFileStat(FileStat stat) {
+        mode = stat.mode();
+        uid = stat.uid();
+        gid = stat.gid();
+        linkCount = stat.nlink();
+        size = stat.st_size();
+        blocks = stat.blocks();
+        inode = stat.ino();
+        lastModified = stat.mtime() * 1000;
+        device = stat.dev();
+    }
+
+    /**
+     * Same encoding as glibc's gnu_dev_makedev, so devices compare equal to st_dev.
+     */
+    private static long makedev(long major, long minor) {
+        return ((major & 0xfffff000L) << 32) | ((major & 0xfffL) << 8)
+                | ((minor & 0xffffff00L) << 12) | (minor & 0xffL);
+    }
+
+    /**
+     * Returns a copy that is not overwritten by later calls.
+     */
+    public NativeFileStat copy() {
+        NativeFileStat copy = new NativeFileStat();
+        copy.mode = mode;
+        copy.uid = uid;
+        copy.gid = gid;
+        copy.linkCount = linkCount;
+        copy.size = size;
+        copy.blocks = blocks;
+        copy.lastModified = lastModified;
+        copy.inode = inode;
+        copy.device = device;
+        return copy;
+    }
+
+    /**
+     * File type and permission bits, as in st_mode.
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    public int getUid() {
+        return uid;
+    }
+
+    public int getGid() {
+        return gid;
+    }
+
+    /**
+     * Number of hard links, as in st_nlink.
+     */
+    public int getLinkCount() {
+        return linkCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Number of 512 byte blocks allocated, as in st_blocks.
+     */
+    public long getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Last modification time in milliseconds since the epoch, like {@link File#lastModified()}.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public long getInode() {
+        return inode;
+    }
+
+    /**
+     * The device containing the file, as in st_dev.
+     */
+    public long getDevice() {
+        return device;
+    }
+
+    public boolean isDirectory() {
+        return (mode & S_IFMT) == S_IFDIR;
+    }
+
+    public boolean isRegularFile() {
+        return (mode & S_IFMT) == S_IFREG;
+    }
+
+    public boolean isSymlink() {
+        return (mode & S_IFMT) == S_IFLNK;
+    }
+}
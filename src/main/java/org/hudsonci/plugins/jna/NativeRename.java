@@ -0,0 +1,254 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Renames that do not replace the target, or exchange two paths, with renameat2(2).
+ * Where the kernel, libc or file system does not support it the rename is emulated:
+ * without replacing by reserving the target name with an empty file or directory
+ * that is then renamed over, the exchange with three renames through a temporary name,
+ * which is not atomic.
+ */
+final class NativeRename {
+
+    /**
+     * Cleared if libc has no renameat2 wrapper, the system call is then made directly.
+     */
+    private static volatile boolean renameat2Wrapper = true;
+
+    /**
+     * Cleared once the kernel turns out not to have renameat2, so that we stop trying.
+     */
+    private static volatile boolean renameat2Available = Platform.isLinux();
+
+    /**
+     * Set once renameat2 was probed for, so that isAtomic() only calls it once.
+     */
+    private static volatile boolean probed;
+
+    /**
+     * Whether a flag is supported by a file system, by "device/flag", as probed after an EINVAL.
+     */
+    private static final ConcurrentMap<String, Boolean> SUPPORTED_FLAGS = new ConcurrentHashMap<String, Boolean>();
+
+    private static final Random RANDOM = new Random();
+
+    private NativeRename() {
+    }
+
+    /**
+     * Whether renameat2 is there, so that renames are atomic unless the file system
+     * does not support the flags.
+     */
+    static boolean isAtomic() {
+        if (!probed) {
+            // fails with ENOENT if renameat2 exists
+            renameat2("", "", RENAME_NOREPLACE);
+            probed = true;
+        }
+        return renameat2Available;
+    }
+
+    /**
+     * Renames {@code from} to {@code to}, failing with EEXIST if {@code to} exists.
+     *
+     * @return 0 on success, otherwise the errno
+     */
+    static int renameNoReplace(File from, File to) {
+        String fromPath = from.getAbsolutePath();
+        String toPath = to.getAbsolutePath();
+        int err = renameat2(fromPath, toPath, RENAME_NOREPLACE);
+        if (!isUnsupported(err, to, RENAME_NOREPLACE)) {
+            return err;
+        }
+
+        // reserve the name, then replace the placeholder, which rename allows for an
+        // empty file or an empty directory of the same type
+        NativeFileStat stat = NativeFileStat.current();
+        err = stat.statAt(AT_FDCWD, fromPath, from, false);
+        if (err != 0) {
+            return err;
+        }
+        boolean directory = stat.isDirectory();
+        if (directory) {
+            if (LIBC.mkdirat(AT_FDCWD, toPath, 0700) != 0) {
+                return Native.getLastError();
+            }
+        } else {
+            int fd = LIBC.openat(AT_FDCWD, toPath, O_WRONLY | O_CREAT | O_EXCL | O_CLOEXEC, 0600);
+            if (fd < 0) {
+                return Native.getLastError();
+            }
+            DirectGNUCLibrary.close(fd);
+        }
+        if (LIBC.rename(fromPath, toPath) != 0) {
+            err = Native.getLastError();
+            DirectGNUCLibrary.unlinkat(AT_FDCWD, toPath, directory ? AT_REMOVEDIR : 0);
+            return err;
+        }
+        return 0;
+    }
+
+    /**
+     * Exchanges {@code a} and {@code b}, which both have to exist.
+     *
+     * @return 0 on success, otherwise the errno
+     */
+    static int exchange(File a, File b) {
+        String aPath = a.getAbsolutePath();
+        String bPath = b.getAbsolutePath();
+        int err = renameat2(aPath, bPath, RENAME_EXCHANGE);
+        if (!isUnsupported(err, b, RENAME_EXCHANGE)) {
+            return err;
+        }
+
+        File temp;
+        do {
+            temp = new File(a.getAbsoluteFile().getParentFile(), "." + a.getName() + ".exchange" + RANDOM.nextInt(Integer.MAX_VALUE));
+            err = renameNoReplace(a, temp);
+        } while (err == EEXIST);
+        if (err != 0) {
+            return err;
+        }
+        String tempPath = temp.getPath();
+        if (LIBC.rename(bPath, aPath) != 0) {
+            err = Native.getLastError();
+            LIBC.rename(tempPath, aPath);
+            return err;
+        }
+        if (LIBC.rename(tempPath, bPath) != 0) {
+            err = Native.getLastError();
+            // put both back
+            LIBC.rename(aPath, bPath);
+            LIBC.rename(tempPath, aPath);
+            return err;
+        }
+        return 0;
+    }
+
+    /**
+     * Whether to fall back to emulating the rename: the call is missing, or it failed with
+     * EINVAL and the flag turns out not to be supported by the file system of {@code target}.
+     * EINVAL also means a directory was to be moved below itself, which is then reported.
+     */
+    private static boolean isUnsupported(int err, File target, int flag) {
+        if (err == ENOSYS) {
+            return true;
+        }
+        if (err != EINVAL) {
+            return false;
+        }
+        File dir = target.getAbsoluteFile().getParentFile();
+        NativeFileStat stat = NativeFileStat.current();
+        if (dir == null || stat.statAt(AT_FDCWD, dir.getPath(), dir, true) != 0) {
+            return false;
+        }
+        String key = stat.getDevice() + "/" + flag;
+        Boolean supported = SUPPORTED_FLAGS.get(key);
+        if (supported == null) {
+            supported = probe(dir, flag);
+            if (supported == null) {
+                // could not tell, e.g. the directory is not writable
+                return false;
+            }
+            SUPPORTED_FLAGS.put(key, supported);
+        }
+        return !supported;
+    }
+
+    /**
+     * Renames scratch files in {@code dir} with the flag.
+     *
+     * @return whether the flag is supported, null if that could not be told
+     */
+    private static Boolean probe(File dir, int flag) {
+        String prefix = new File(dir, ".renameat2" + RANDOM.nextInt(Integer.MAX_VALUE)).getPath();
+        String a = prefix + ".a";
+        String b = prefix + ".b";
+        if (!createEmpty(a)) {
+            return null;
+        }
+        try {
+            if (flag == RENAME_EXCHANGE && !createEmpty(b)) {
+                return null;
+            }
+            int err = renameat2(a, b, flag);
+            return err == 0 ? Boolean.TRUE : err == EINVAL ? Boolean.FALSE : null;
+        } finally {
+            DirectGNUCLibrary.unlinkat(AT_FDCWD, a, 0);
+            DirectGNUCLibrary.unlinkat(AT_FDCWD, b, 0);
+        }
+    }
+
+    private static boolean createEmpty(String path) {
+        int fd = LIBC.openat(AT_FDCWD, path, O_WRONLY | O_CREAT | O_EXCL | O_CLOEXEC, 0600);
+        if (fd < 0) {
+            return false;
+        }
+        DirectGNUCLibrary.close(fd);
+        return true;
+    }
+
+    /**
+     * @return 0 on success, otherwise the errno, ENOSYS if renameat2 is not available
+     */
+    private static int renameat2(String from, String to, int flags) {
+        if (!renameat2Available) {
+            return ENOSYS;
+        }
+        int r;
+        if (renameat2Wrapper) {
+            try {
+                r = LIBC.renameat2(AT_FDCWD, from, AT_FDCWD, to, flags);
+                return r == 0 ? 0 : checkAvailable(Native.getLastError());
+            } catch (LinkageError e) {
+                renameat2Wrapper = false;
+            }
+        }
+        if (LinuxSyscall.RENAMEAT2 < 0) {
+            renameat2Available = false;
+            return ENOSYS;
+        }
+        r = LIBC.syscall(new NativeLong(LinuxSyscall.RENAMEAT2), new NativeLong(AT_FDCWD), from,
+                new NativeLong(AT_FDCWD), to, new NativeLong(flags)).intValue();
+        return r == 0 ? 0 : checkAvailable(Native.getLastError());
+    }
+
+    private static int checkAvailable(int err) {
+        if (err == ENOSYS) {
+            renameat2Available = false;
+        }
+        return err;
+    }
+}
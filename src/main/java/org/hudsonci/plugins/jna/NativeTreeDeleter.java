@@ -0,0 +1,352 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Native;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hudsonci.plugins.jna.DirectGNUCLibrary.*;
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Deletes a directory tree with openat, getdents64 and unlinkat, relative to the descriptor
+ * of each directory. Every directory is emptied by its own task on the executor and removed
+ * by whichever task finishes last below it, so no thread ever waits for another.
+ *
+ * <p>
+ * Every directory is opened and removed by name relative to the descriptor of its parent,
+ * never by path, so a directory swapped for a symlink while the tree is deleted does not
+ * lead outside of it. A directory keeps its one descriptor until its subdirectories are
+ * gone; once {@link #MAX_HELD_DESCRIPTORS} are held, subdirectories are deleted by the task
+ * that found them instead of being queued, so a wide tree does not run out of descriptors.
+ *
+ * <p>
+ * Symbolic links are removed, never followed. A directory that denies the access needed
+ * to empty it is given mode 0700 first. A directory that was filled again while it was
+ * emptied, and in which nothing failed, is emptied once more. Linux only.
+ */
+class NativeTreeDeleter {
+
+    // descriptors of directories waiting for their subdirectories
+    private static final int MAX_HELD_DESCRIPTORS = 256;
+    // how often a directory that is filled again while it is emptied is emptied
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ExecutorService executor;
+    private final AtomicLong bytesFreed = new AtomicLong();
+    private final AtomicLong inodesFreed = new AtomicLong();
+    private final AtomicInteger heldDescriptors = new AtomicInteger();
+    private final List<FileOperationError> errors = Collections.synchronizedList(new ArrayList<FileOperationError>());
+    // the parent of the root is not deleted, only its descriptor is needed
+    private int rootParentFd = -1;
+
+    // guarded by this
+    private boolean done;
+    private Throwable failure;
+
+    /**
+     * A directory being emptied. It is removed once its own listing and all the
+     * subdirectories it found have completed.
+     */
+    private static class Node {
+
+        final Node parent;
+        final File dir;
+        final String name;
+        final AtomicInteger pending = new AtomicInteger(1);
+        // open while the entries are deleted and until the subdirectories are gone
+        int fd = -1;
+        int attempts;
+        // set when anything in the subtree could not be deleted
+        volatile boolean failed;
+
+        Node(Node parent, File dir, String name, int attempts) {
+            this.parent = parent;
+            this.dir = dir;
+            this.name = name;
+            this.attempts = attempts;
+        }
+    }
+
+    NativeTreeDeleter(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    DeleteResult delete(File root) throws InterruptedException {
+        String path = root.getAbsolutePath();
+        NativeFileStat stat = NativeFileStat.current();
+        int err = stat.statAt(AT_FDCWD, path, root, false);
+        if (err != 0) {
+            if (err != ENOENT) {
+                error(null, root, err);
+            }
+            return result();
+        }
+        if (!stat.isDirectory()) {
+            unlinkFile(AT_FDCWD, path, root, stat);
+            return result();
+        }
+
+        File dir = root.getAbsoluteFile();
+        File parent = dir.getParentFile();
+        rootParentFd = parent == null ? -1 : openat(AT_FDCWD, parent.getPath(), O_RDONLY | O_DIRECTORY | O_CLOEXEC);
+        if (rootParentFd < 0) {
+            error(null, root, parent == null ? EINVAL : Native.getLastError());
+            return result();
+        }
+        submit(new Node(null, dir, dir.getName(), 0));
+        synchronized (this) {
+            while (!done) {
+                wait();
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Failed to delete " + root, failure);
+            }
+        }
+        return result();
+    }
+
+    private DeleteResult result() {
+        return new DeleteResult(bytesFreed.get(), inodesFreed.get(), new ArrayList<FileOperationError>(errors));
+    }
+
+    private void submit(final Node node) {
+        executor.execute(new Runnable() {
+
+            public void run() {
+                process(node);
+            }
+        });
+    }
+
+    private void process(Node node) {
+        try {
+            empty(node);
+        } catch (Throwable t) {
+            synchronized (this) {
+                if (failure == null) {
+                    failure = t;
+                }
+            }
+        } finally {
+            completed(node);
+        }
+    }
+
+    private int parentFd(Node node) {
+        return node.parent == null ? rootParentFd : node.parent.fd;
+    }
+
+    /**
+     * Deletes the files in the directory and starts on every subdirectory.
+     */
+    private void empty(Node node) {
+        int parentFd = parentFd(node);
+        int fd = openat(parentFd, node.name, O_RDONLY | O_DIRECTORY | O_NOFOLLOW | O_CLOEXEC);
+        if (fd < 0 && Native.getLastError() == EACCES && makeAccessible(parentFd, node.name)) {
+            fd = openat(parentFd, node.name, O_RDONLY | O_DIRECTORY | O_NOFOLLOW | O_CLOEXEC);
+        }
+        if (fd < 0) {
+            error(node, node.dir, Native.getLastError());
+            return;
+        }
+        node.fd = fd;
+        heldDescriptors.incrementAndGet();
+
+        List<String> names = new ArrayList<String>();
+        List<Integer> types = new ArrayList<Integer>();
+        NativeDirectoryReader reader = new NativeDirectoryReader(fd, node.dir);
+        try {
+            while (reader.next()) {
+                names.add(reader.getName());
+                types.add(reader.getType());
+            }
+        } finally {
+            // the descriptor stays with the node for the subdirectories
+            reader.detach();
+        }
+
+        NativeFileStat stat = NativeFileStat.current();
+        boolean madeWritable = false;
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            File file = new File(node.dir, name);
+            if (types.get(i) == NativeDirectoryReader.DT_DIR) {
+                emptyChild(node, name, file);
+                continue;
+            }
+            // the size is needed anyway, which also tells the type where d_type did not
+            int err = stat.statAt(fd, name, file, false);
+            if (err != 0) {
+                if (err != ENOENT) {
+                    error(node, file, err);
+                }
+                continue;
+            }
+            if (stat.isDirectory()) {
+                emptyChild(node, name, file);
+                continue;
+            }
+            if (unlinkat(fd, name, 0) != 0) {
+                err = Native.getLastError();
+                if (err == EACCES && !madeWritable) {
+                    // the directory is going away, its mode does not matter any more
+                    madeWritable = true;
+                    if (fchmod(fd, 0700) == 0 && unlinkat(fd, name, 0) == 0) {
+                        freed(stat);
+                        continue;
+                    }
+                    err = Native.getLastError();
+                }
+                if (err != ENOENT) {
+                    error(node, file, err);
+                }
+                continue;
+            }
+            freed(stat);
+        }
+    }
+
+    private void emptyChild(Node node, String name, File file) {
+        Node child = new Node(node, file, name, node.attempts);
+        node.pending.incrementAndGet();
+        if (heldDescriptors.get() < MAX_HELD_DESCRIPTORS) {
+            submit(child);
+        } else {
+            // depth first on this thread, which holds one descriptor per level
+            process(child);
+        }
+    }
+
+    /**
+     * Gives the directory mode 0700, through a descriptor of the directory itself, which
+     * can be opened with O_PATH even without access to it.
+     */
+    private static boolean makeAccessible(int parentFd, String name) {
+        int fd = openat(parentFd, name, O_PATH | O_DIRECTORY | O_NOFOLLOW | O_CLOEXEC);
+        if (fd < 0) {
+            return false;
+        }
+        try {
+            // fchmod does not take O_PATH descriptors, their /proc link stands for them
+            return fchmodat(AT_FDCWD, "/proc/self/fd/" + fd, 0700, 0) == 0;
+        } finally {
+            close(fd);
+        }
+    }
+
+    /**
+     * Called when the listing of the node or one of its subdirectories is finished.
+     * The last one removes the directory and reports to the parent.
+     */
+    private void completed(Node node) {
+        while (node != null && node.pending.decrementAndGet() == 0) {
+            if (!removeDirectory(node)) {
+                // emptied again by a new task, which completes it
+                return;
+            }
+            if (node.parent == null) {
+                close(rootParentFd);
+                synchronized (this) {
+                    done = true;
+                    notifyAll();
+                }
+            }
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Removes the directory of the node.
+     *
+     * @return false if the directory was filled again and is being emptied once more
+     */
+    private boolean removeDirectory(Node node) {
+        if (node.fd >= 0) {
+            close(node.fd);
+            node.fd = -1;
+            heldDescriptors.decrementAndGet();
+        }
+        int parentFd = parentFd(node);
+        if (unlinkat(parentFd, node.name, AT_REMOVEDIR) == 0) {
+            inodesFreed.incrementAndGet();
+            return true;
+        }
+        int err = Native.getLastError();
+        if (err == EACCES && node.parent != null) {
+            // only within the tree, the parent of the root is left alone
+            if (fchmod(parentFd, 0700) == 0 && unlinkat(parentFd, node.name, AT_REMOVEDIR) == 0) {
+                inodesFreed.incrementAndGet();
+                return true;
+            }
+            err = Native.getLastError();
+        }
+        if (err == ENOTEMPTY && node.failed) {
+            // what is left was reported already
+            return true;
+        }
+        if (err == ENOTEMPTY && ++node.attempts < MAX_ATTEMPTS) {
+            // something, such as a process of the build, created files meanwhile
+            node.pending.set(1);
+            submit(node);
+            return false;
+        }
+        if (err != ENOENT) {
+            error(node, node.dir, err);
+        }
+        return true;
+    }
+
+    private void unlinkFile(int dirFd, String name, File file, NativeFileStat stat) {
+        if (unlinkat(dirFd, name, 0) == 0) {
+            freed(stat);
+        } else {
+            error(null, file, Native.getLastError());
+        }
+    }
+
+    private void freed(NativeFileStat stat) {
+        inodesFreed.incrementAndGet();
+        if (stat.getLinkCount() <= 1) {
+            bytesFreed.addAndGet(stat.getBlocks() * 512);
+        }
+    }
+
+    /**
+     * Records the failure and marks {@code node} and the directories above it, so that
+     * they are not emptied again.
+     */
+    private void error(Node node, File file, int errno) {
+        for (; node != null; node = node.parent) {
+            node.failed = true;
+        }
+        errors.add(new FileOperationError(file, errno, DirectGNUCLibrary.strerror(errno)));
+    }
+}
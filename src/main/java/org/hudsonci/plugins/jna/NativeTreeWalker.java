@@ -0,0 +1,275 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hudsonci.plugins.jna.DirectGNUCLibrary.*;
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+import static org.hudsonci.plugins.jna.NativeDirectoryReader.*;
+
+/**
+ * Walks a directory tree keeping one open descriptor per directory, so that each entry
+ * is visited relative to its parent descriptor rather than by its full path.
+ *
+ * <p>
+ * Symbolic links are reported to the visitor but never followed. Linux only, the
+ * caller should check {@link com.sun.jna.Platform#isLinux()} and
+ * {@link GNUCLibrary#OPEN_FLAGS_KNOWN} and fall back otherwise.
+ *
+ * <p>
+ * Given an executor, every subdirectory is walked as a separate task, which shares the
+ * descriptor of its parent, so that it too opens the subdirectory by name and not by a
+ * path a symlink could be swapped into. The descriptor is closed by the last of them.
+ * Once {@link #MAX_HELD_DESCRIPTORS} are held, subdirectories are walked by the task that
+ * found them instead of being queued, so a wide tree does not run out of descriptors. The
+ * visitor must then be thread safe.
+ */
+class NativeTreeWalker {
+
+    static final int TYPE_FILE = 0;
+    static final int TYPE_DIRECTORY = 1;
+    static final int TYPE_SYMLINK = 2;
+
+    // descriptors of directories listed and not done yet
+    private static final int MAX_HELD_DESCRIPTORS = 256;
+
+    /**
+     * Callback for every entry of the tree, including the root.
+     */
+    interface Visitor {
+
+        /**
+         * Visits an entry. Directories are visited before their children.
+         *
+         * @param dirFd descriptor of the parent directory, {@link GNUCLibrary#AT_FDCWD} for the root
+         * @param name name of the entry relative to {@code dirFd}
+         * @param file the entry, for reporting
+         * @param type one of TYPE_FILE, TYPE_DIRECTORY or TYPE_SYMLINK
+         * @return 0 on success, otherwise the errno of the failed call
+         */
+        int visit(int dirFd, String name, File file, int type);
+    }
+
+    /**
+     * A visitor that is also told when everything below a directory has been visited.
+     */
+    interface DirectoryVisitor extends Visitor {
+
+        /**
+         * Called once for every directory visited, after its last child.
+         *
+         * @return 0 on success, otherwise the errno of the failed call
+         */
+        int leave(File dir);
+    }
+
+    private final Visitor visitor;
+    private final ExecutorService executor;
+    private final List<FileOperationError> errors = Collections.synchronizedList(new ArrayList<FileOperationError>());
+    private final AtomicInteger heldDescriptors = new AtomicInteger();
+
+    // tasks submitted to the executor and not finished yet, guarded by this
+    private int pending;
+    private Throwable failure;
+
+    NativeTreeWalker(Visitor visitor) {
+        this(visitor, null);
+    }
+
+    NativeTreeWalker(Visitor visitor, ExecutorService executor) {
+        this.visitor = visitor;
+        this.executor = executor;
+    }
+
+    /**
+     * Walks the tree rooted at {@code root}, waiting for all subtree tasks to finish.
+     *
+     * @return the failures, empty if every entry was visited successfully
+     */
+    List<FileOperationError> walk(File root) throws InterruptedException {
+        visitEntry(AT_FDCWD, root.getAbsolutePath(), root, DT_UNKNOWN);
+        synchronized (this) {
+            while (pending > 0) {
+                wait();
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Failed to walk " + root, failure);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * An open directory, shared with the tasks of its subdirectories and closed by the last one.
+     */
+    private class Directory {
+
+        final int fd;
+        final File file;
+        final AtomicInteger references = new AtomicInteger(1);
+
+        Directory(int fd, File file) {
+            this.fd = fd;
+            this.file = file;
+            heldDescriptors.incrementAndGet();
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                close(fd);
+                heldDescriptors.decrementAndGet();
+                leave(file);
+            }
+        }
+    }
+
+    private void submit(final Directory parent, final String name, final File dir, final int dType) {
+        parent.references.incrementAndGet();
+        synchronized (this) {
+            pending++;
+        }
+        executor.execute(new Runnable() {
+
+            public void run() {
+                try {
+                    try {
+                        visitEntry(parent.fd, name, dir, dType);
+                    } finally {
+                        parent.release();
+                    }
+                } catch (Throwable t) {
+                    synchronized (NativeTreeWalker.this) {
+                        if (failure == null) {
+                            failure = t;
+                        }
+                    }
+                } finally {
+                    synchronized (NativeTreeWalker.this) {
+                        if (--pending == 0) {
+                            NativeTreeWalker.this.notifyAll();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void visitEntry(int dirFd, String name, File file, int dType) {
+        int fd = -1;
+        int type;
+        if (dType == DT_DIR) {
+            type = TYPE_DIRECTORY;
+        } else if (dType == DT_LNK) {
+            type = TYPE_SYMLINK;
+        } else if (dType != DT_UNKNOWN) {
+            type = TYPE_FILE;
+        } else {
+            // file system did not tell us the type, find out by trying to open it as a directory
+            fd = openat(dirFd, name, O_RDONLY | O_DIRECTORY | O_NOFOLLOW | O_CLOEXEC);
+            if (fd >= 0) {
+                type = TYPE_DIRECTORY;
+            } else {
+                int err = Native.getLastError();
+                if (err == ELOOP) {
+                    type = TYPE_SYMLINK;
+                } else if (err == ENOTDIR) {
+                    // O_NOFOLLOW|O_DIRECTORY reports ENOTDIR for a symlink as well
+                    type = readlinkat(dirFd, name, new Memory(1), new NativeLong(1)) >= 0 ? TYPE_SYMLINK : TYPE_FILE;
+                } else {
+                    error(file, err);
+                    return;
+                }
+            }
+        }
+
+        int err = visitor.visit(dirFd, name, file, type);
+        if (err != 0) {
+            error(file, err);
+        }
+        if (type != TYPE_DIRECTORY) {
+            return;
+        }
+
+        if (fd < 0) {
+            // opened after the visit, so that a visitor granting u+rx lets us descend
+            fd = openat(dirFd, name, O_RDONLY | O_DIRECTORY | O_NOFOLLOW | O_CLOEXEC);
+            if (fd < 0) {
+                error(file, Native.getLastError());
+                leave(file);
+                return;
+            }
+        }
+        visitChildren(fd, file);
+    }
+
+    private void leave(File dir) {
+        if (visitor instanceof DirectoryVisitor) {
+            int err = ((DirectoryVisitor) visitor).leave(dir);
+            if (err != 0) {
+                error(dir, err);
+            }
+        }
+    }
+
+    private void visitChildren(int fd, File dir) {
+        Directory directory = new Directory(fd, dir);
+        try {
+            // read the whole directory first, the visitor may modify it
+            List<String> names = new ArrayList<String>();
+            List<Integer> types = new ArrayList<Integer>();
+            NativeDirectoryReader reader = new NativeDirectoryReader(fd, dir);
+            try {
+                while (reader.next()) {
+                    names.add(reader.getName());
+                    types.add(reader.getType());
+                }
+            } finally {
+                reader.detach();
+            }
+            for (int i = 0; i < names.size(); i++) {
+                File child = new File(dir, names.get(i));
+                if (executor != null && types.get(i) == DT_DIR && heldDescriptors.get() < MAX_HELD_DESCRIPTORS) {
+                    submit(directory, names.get(i), child, DT_DIR);
+                } else {
+                    visitEntry(fd, names.get(i), child, types.get(i));
+                }
+            }
+        } finally {
+            directory.release();
+        }
+    }
+
+    private void error(File file, int errno) {
+        errors.add(new FileOperationError(file, errno, strerror(errno)));
+    }
+}
@@ -0,0 +1,506 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+import static org.hudsonci.plugins.jna.InotifyLibrary.*;
+
+/**
+ * Watches directories for changes with inotify, optionally with all their subdirectories,
+ * instead of polling them.
+ *
+ * <p>
+ * One thread only reads the events from the kernel. Another scans the directories created
+ * in a recursively registered tree, watching them and reporting the files already in them as
+ * created, so that a large new tree does not hold up the events. A third thread dispatches the changes to the {@link WatchListener}s: changes of the same file
+ * within the coalescing window are reported once, with their kinds or-ed together. If the
+ * kernel queue overflows, the trees are scanned again for new directories and the listeners
+ * are told with {@link WatchListener#OVERFLOW} to rescan them.
+ *
+ * <p>
+ * Each watched directory costs a watch out of {@code /proc/sys/fs/inotify/max_user_watches},
+ * which has to be raised to watch large trees. Linux only.
+ */
+public class NativeWatchService {
+
+    private static final Logger LOGGER = Logger.getLogger(NativeWatchService.class.getName());
+
+    private static final int WATCH_MASK = IN_CREATE | IN_DELETE | IN_MOVED_FROM | IN_MOVED_TO | IN_MODIFY
+            | IN_CLOSE_WRITE | IN_ATTRIB | IN_DELETE_SELF | IN_MOVE_SELF | IN_ONLYDIR | IN_DONT_FOLLOW;
+
+    private static final int EVENT_BUFFER_SIZE = 64 * 1024;
+
+    private final long coalesceMillis;
+    private final int inotifyFd;
+    private final Object lock = new Object();
+    // guarded by lock
+    private final Map<Integer, WatchedDirectory> watchesByWd = new HashMap<Integer, WatchedDirectory>();
+    private final TreeMap<String, WatchedDirectory> watchesByPath = new TreeMap<String, WatchedDirectory>();
+    private final List<Registration> registrations = new ArrayList<Registration>();
+    // scans new trees, one at a time so that they are watched in the order they appeared
+    private final ExecutorService scanner;
+    private final AtomicBoolean rescanQueued = new AtomicBoolean();
+    // guarded by itself
+    private final Map<File, Change> pending = new LinkedHashMap<File, Change>();
+    private volatile boolean closed;
+
+    /**
+     * A registered directory, canceled to stop watching it.
+     */
+    public class Registration {
+
+        private final File root;
+        private final boolean recursive;
+        private final WatchListener listener;
+
+        private Registration(File root, boolean recursive, WatchListener listener) {
+            this.root = root;
+            this.recursive = recursive;
+            this.listener = listener;
+        }
+
+        public File getRoot() {
+            return root;
+        }
+
+        /**
+         * Stops watching the directory for this registration.
+         */
+        public void cancel() {
+            synchronized (lock) {
+                registrations.remove(this);
+                for (Iterator<WatchedDirectory> it = watchesByPath.values().iterator(); it.hasNext();) {
+                    WatchedDirectory watch = it.next();
+                    if (watch.registrations.remove(this) && watch.registrations.isEmpty()) {
+                        it.remove();
+                        watchesByWd.remove(watch.wd);
+                        INOTIFY.inotify_rm_watch(inotifyFd, watch.wd);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class WatchedDirectory {
+
+        final File dir;
+        final int wd;
+        final List<Registration> registrations = new ArrayList<Registration>(1);
+
+        WatchedDirectory(File dir, int wd) {
+            this.dir = dir;
+            this.wd = wd;
+        }
+    }
+
+    private static class Change {
+
+        int kinds;
+        final List<Registration> registrations = new ArrayList<Registration>(1);
+    }
+
+    /**
+     * @param coalesceMillis how long changes are collected before they are dispatched
+     */
+    public NativeWatchService(long coalesceMillis) throws NativeAccessException {
+        this.coalesceMillis = coalesceMillis;
+        try {
+            inotifyFd = INOTIFY.inotify_init1(IN_NONBLOCK | IN_CLOEXEC);
+        } catch (LinkageError e) {
+            throw new NativeAccessException("inotify is not available. " + e.getLocalizedMessage());
+        }
+        if (inotifyFd < 0) {
+            throw new NativeAccessException("Failed to initialize inotify. " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        scanner = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Watch service scanner");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        Thread reader = new Thread(new Runnable() {
+
+            public void run() {
+                readEvents();
+            }
+        }, "Watch service inotify reader");
+        reader.setDaemon(true);
+        reader.start();
+        Thread dispatcher = new Thread(new Runnable() {
+
+            public void run() {
+                dispatch();
+            }
+        }, "Watch service dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Starts watching the directory, and all its subdirectories if {@code recursive}.
+     * Symlinks are not followed.
+     */
+    public Registration register(File dir, boolean recursive, WatchListener listener) throws NativeAccessException {
+        if (closed) {
+            throw new NativeAccessException("Watch service is closed");
+        }
+        Registration registration = new Registration(dir.getAbsoluteFile(), recursive, listener);
+        synchronized (lock) {
+            registrations.add(registration);
+        }
+        int err = watchTree(registration, registration.root, false);
+        if (err != 0) {
+            registration.cancel();
+            throw new NativeAccessException("Failed to watch " + dir + ". " + DirectGNUCLibrary.strerror(err)
+                    + (err == ENOSPC ? " Raise /proc/sys/fs/inotify/max_user_watches" : ""));
+        }
+        return registration;
+    }
+
+    /**
+     * Number of directories watched.
+     */
+    public int getWatchCount() {
+        synchronized (lock) {
+            return watchesByWd.size();
+        }
+    }
+
+    /**
+     * Stops watching. Changes not dispatched yet are dropped.
+     */
+    public void close() {
+        closed = true;
+        scanner.shutdownNow();
+        synchronized (pending) {
+            pending.clear();
+            pending.notifyAll();
+        }
+    }
+
+    /**
+     * Watches {@code dir}, and its subdirectories if the registration is recursive.
+     *
+     * @param created whether the tree is new, its files are then reported as created
+     * @return 0, or the errno of the first directory that could not be watched
+     */
+    private int watchTree(Registration registration, File dir, boolean created) {
+        int firstError = 0;
+        LinkedList<File> stack = new LinkedList<File>();
+        stack.add(dir);
+        while (!stack.isEmpty()) {
+            File current = stack.removeLast();
+            int err = watch(registration, current);
+            if (err == ENOTDIR || err == ENOENT) {
+                // a file after all, or gone again
+                continue;
+            }
+            if (err != 0) {
+                if (firstError == 0) {
+                    firstError = err;
+                }
+                continue;
+            }
+            if (!registration.recursive && !created) {
+                continue;
+            }
+            // listed after the watch is added, so that nothing created in between is missed
+            NativeDirectoryReader reader = NativeDirectoryReader.openAt(AT_FDCWD, current.getPath(), current);
+            if (reader == null) {
+                continue;
+            }
+            try {
+                while (reader.next()) {
+                    File child = new File(current, reader.getName());
+                    int type = reader.getType();
+                    if (created) {
+                        changed(child, WatchListener.CREATED, registration);
+                    }
+                    if (registration.recursive && (type == NativeDirectoryReader.DT_DIR || type == NativeDirectoryReader.DT_UNKNOWN)) {
+                        stack.add(child);
+                    }
+                }
+            } catch (NativeAccessException e) {
+                LOGGER.log(Level.FINE, "Failed to list " + current, e);
+            } finally {
+                reader.close();
+            }
+        }
+        return firstError;
+    }
+
+    /**
+     * @return 0 on success, otherwise the errno
+     */
+    private int watch(Registration registration, File dir) {
+        synchronized (lock) {
+            if (!registrations.contains(registration)) {
+                return 0;
+            }
+            int wd = INOTIFY.inotify_add_watch(inotifyFd, dir.getPath(), WATCH_MASK);
+            if (wd < 0) {
+                return Native.getLastError();
+            }
+            WatchedDirectory watch = watchesByWd.get(wd);
+            if (watch == null || !watch.dir.equals(dir)) {
+                if (watch != null) {
+                    // the directory was moved here
+                    watchesByPath.remove(watch.dir.getPath());
+                }
+                watch = new WatchedDirectory(dir, wd);
+                watchesByWd.put(wd, watch);
+                watchesByPath.put(dir.getPath(), watch);
+            }
+            if (!watch.registrations.contains(registration)) {
+                watch.registrations.add(registration);
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Stops watching the directory and everything below it, which was moved away.
+     */
+    private void unwatchTree(File dir) {
+        String path = dir.getPath();
+        Map<String, WatchedDirectory> tree = new HashMap<String, WatchedDirectory>(
+                watchesByPath.subMap(path + '/', path + "/\uffff"));
+        WatchedDirectory top = watchesByPath.get(path);
+        if (top != null) {
+            tree.put(path, top);
+        }
+        for (WatchedDirectory watch : tree.values()) {
+            watchesByPath.remove(watch.dir.getPath());
+            watchesByWd.remove(watch.wd);
+            INOTIFY.inotify_rm_watch(inotifyFd, watch.wd);
+        }
+    }
+
+    private void changed(File file, int kinds, Registration registration) {
+        synchronized (pending) {
+            Change change = pending.get(file);
+            if (change == null) {
+                change = new Change();
+                pending.put(file, change);
+                if (pending.size() == 1) {
+                    pending.notifyAll();
+                }
+            }
+            change.kinds |= kinds;
+            if (!change.registrations.contains(registration)) {
+                change.registrations.add(registration);
+            }
+        }
+    }
+
+    private void readEvents() {
+        Memory pollFd = new Memory(SIZEOF_POLLFD);
+        pollFd.setInt(0, inotifyFd);
+        pollFd.setShort(4, (short) POLLIN);
+        Memory buffer = new Memory(EVENT_BUFFER_SIZE);
+        NativeLong bufferSize = new NativeLong(EVENT_BUFFER_SIZE);
+        try {
+            while (!closed) {
+                pollFd.setShort(6, (short) 0);
+                if (LIBC.poll(pollFd, 1, 1000) <= 0) {
+                    continue;
+                }
+                int length = LIBC.read(inotifyFd, buffer, bufferSize);
+                if (length <= 0) {
+                    continue;
+                }
+                boolean overflow = false;
+                synchronized (lock) {
+                    for (int offset = 0; offset < length;) {
+                        int wd = buffer.getInt(offset);
+                        int mask = buffer.getInt(offset + 4);
+                        int nameLength = buffer.getInt(offset + 12);
+                        String name = nameLength > 0 ? buffer.getString(offset + SIZEOF_INOTIFY_EVENT) : null;
+                        offset += SIZEOF_INOTIFY_EVENT + nameLength;
+                        if ((mask & IN_Q_OVERFLOW) != 0) {
+                            overflow = true;
+                            continue;
+                        }
+                        WatchedDirectory watch = watchesByWd.get(wd);
+                        if (watch == null) {
+                            continue;
+                        }
+                        if ((mask & IN_IGNORED) != 0) {
+                            watchesByWd.remove(wd);
+                            if (watchesByPath.get(watch.dir.getPath()) == watch) {
+                                watchesByPath.remove(watch.dir.getPath());
+                            }
+                            continue;
+                        }
+                        File file = name == null ? watch.dir : new File(watch.dir, name);
+                        int kinds = kindsOf(mask);
+                        if (name != null && (mask & IN_ISDIR) != 0) {
+                            if ((mask & (IN_CREATE | IN_MOVED_TO)) != 0) {
+                                for (Registration registration : watch.registrations) {
+                                    if (registration.recursive) {
+                                        scanNewTree(registration, file);
+                                    }
+                                }
+                            } else if ((mask & IN_MOVED_FROM) != 0) {
+                                unwatchTree(file);
+                            }
+                        }
+                        for (Registration registration : watch.registrations) {
+                            changed(file, kinds, registration);
+                        }
+                    }
+                }
+                if (overflow) {
+                    scanAgain();
+                }
+            }
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Watch service stopped", t);
+            close();
+        } finally {
+            LIBC.close(inotifyFd);
+        }
+    }
+
+    /**
+     * Watches a directory created or moved into a recursive registration on the scanner.
+     */
+    private void scanNewTree(final Registration registration, final File dir) {
+        submit(new Runnable() {
+
+            public void run() {
+                watchTree(registration, dir, true);
+            }
+        });
+    }
+
+    /**
+     * Rescans on the scanner, once for any number of overflows queued before it runs.
+     */
+    private void scanAgain() {
+        if (rescanQueued.compareAndSet(false, true)) {
+            submit(new Runnable() {
+
+                public void run() {
+                    rescanQueued.set(false);
+                    rescan();
+                }
+            });
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            scanner.execute(task);
+        } catch (RejectedExecutionException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Watches the directories that were created while events were lost, and tells every
+     * listener to rescan.
+     */
+    private void rescan() {
+        List<Registration> all;
+        synchronized (lock) {
+            all = new ArrayList<Registration>(registrations);
+        }
+        for (Registration registration : all) {
+            if (registration.recursive) {
+                watchTree(registration, registration.root, false);
+            }
+            changed(registration.root, WatchListener.OVERFLOW, registration);
+        }
+    }
+
+    private static int kindsOf(int mask) {
+        int kinds = 0;
+        if ((mask & (IN_CREATE | IN_MOVED_TO)) != 0) {
+            kinds |= WatchListener.CREATED;
+        }
+        if ((mask & (IN_DELETE | IN_MOVED_FROM | IN_DELETE_SELF | IN_MOVE_SELF)) != 0) {
+            kinds |= WatchListener.DELETED;
+        }
+        if ((mask & (IN_MODIFY | IN_CLOSE_WRITE | IN_ATTRIB)) != 0) {
+            kinds |= WatchListener.MODIFIED;
+        }
+        return kinds;
+    }
+
+    private void dispatch() {
+        while (!closed) {
+            List<Map.Entry<File, Change>> changes;
+            try {
+                synchronized (pending) {
+                    while (pending.isEmpty() && !closed) {
+                        pending.wait();
+                    }
+                    // let the rest of a burst of changes join
+                    long deadline = System.currentTimeMillis() + coalesceMillis;
+                    long remaining;
+                    while (!closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                        pending.wait(remaining);
+                    }
+                    changes = new ArrayList<Map.Entry<File, Change>>(pending.entrySet());
+                    pending.clear();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (Map.Entry<File, Change> change : changes) {
+                for (Registration registration : change.getValue().registrations) {
+                    try {
+                        registration.listener.changed(change.getKey(), change.getValue().kinds);
+                    } catch (Throwable t) {
+                        LOGGER.log(Level.WARNING, "Watch listener failed on " + change.getKey(), t);
+                    }
+                }
+            }
+        }
+    }
+}
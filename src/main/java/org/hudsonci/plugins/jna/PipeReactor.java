@@ -0,0 +1,335 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.ptr.IntByReference;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+import static org.hudsonci.plugins.jna.EpollLibrary.*;
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Pumps the output pipes of many processes with a few threads instead of one or two
+ * threads per process. The pipes are registered with one epoll instance, which all the
+ * threads of the reactor wait on; a pipe is armed with EPOLLONESHOT, so that only one
+ * thread handles it at a time and its data reaches its {@link PipeSink} in order.
+ *
+ * <p>
+ * Each thread reads into its own off-heap buffer, and hands the sink a view of it, so
+ * the output is not copied on the way. Each wake up reads a bounded amount from a pipe,
+ * so that a chatty process does not starve the others. Linux only.
+ */
+public class PipeReactor {
+
+    private static final Logger LOGGER = Logger.getLogger(PipeReactor.class.getName());
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final NativeLong BUFFER_LENGTH = new NativeLong(BUFFER_SIZE);
+    // reads per wake up before the pipe goes back to the queue
+    private static final int MAX_READS = 4;
+    private static final int ARMED = EPOLLIN | EPOLLRDHUP | EPOLLONESHOT;
+
+    private static final int F_GETFL = 3;
+    private static final int F_SETFL = 4;
+
+    private final int epollFd;
+    private final Map<Integer, PipeSink> sinks = new ConcurrentHashMap<Integer, PipeSink>();
+    private final List<Thread> threads = new ArrayList<Thread>();
+    private volatile boolean closed;
+
+    /**
+     * @param threadCount number of threads reading the pipes
+     */
+    public PipeReactor(int threadCount) throws NativeAccessException {
+        try {
+            epollFd = EPOLL.epoll_create1(EPOLL_CLOEXEC);
+        } catch (LinkageError e) {
+            throw new NativeAccessException("epoll is not available. " + e.getLocalizedMessage());
+        }
+        if (epollFd < 0) {
+            throw new NativeAccessException("Failed to create epoll instance. " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(new Runnable() {
+
+                public void run() {
+                    pump();
+                }
+            }, "Pipe reactor #" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    /**
+     * Registers the reading end of a pipe. The reactor takes ownership of {@code fd},
+     * makes it non-blocking and closes it at the end of the stream.
+     */
+    public void register(int fd, PipeSink sink) throws NativeAccessException {
+        if (closed) {
+            throw new NativeAccessException("Pipe reactor is closed");
+        }
+        int flags = DirectGNUCLibrary.fcntl(fd, F_GETFL, 0);
+        if (flags < 0 || DirectGNUCLibrary.fcntl(fd, F_SETFL, flags | O_NONBLOCK) < 0) {
+            throw new NativeAccessException("Failed to make pipe non-blocking. " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        sinks.put(fd, sink);
+        if (control(EPOLL_CTL_ADD, fd, new Memory(SIZEOF_EPOLL_EVENT)) != 0) {
+            int err = Native.getLastError();
+            sinks.remove(fd);
+            throw new NativeAccessException("Failed to register pipe. " + DirectGNUCLibrary.strerror(err));
+        }
+    }
+
+    /**
+     * Starts the command of {@code builder} with posix_spawn, in its directory and
+     * environment, with its output and error output going to new pipes registered with the
+     * reactor. If the builder merges the error output, both go to {@code out} and
+     * {@code err} is not used. The process reads from /dev/null, and its streams are empty.
+     */
+    public Process start(ProcessBuilder builder, PipeSink out, PipeSink err) throws NativeAccessException, IOException {
+        List<String> command = builder.command();
+        if (command.isEmpty()) {
+            throw new IndexOutOfBoundsException("No command to start");
+        }
+        boolean merged = builder.redirectErrorStream();
+        int[] outPipe = pipe();
+        int[] errPipe;
+        try {
+            errPipe = merged ? null : pipe();
+        } catch (NativeAccessException e) {
+            closeAll(outPipe);
+            throw e;
+        }
+        int pid;
+        try {
+            pid = spawn(builder, command, outPipe[1], merged ? outPipe[1] : errPipe[1]);
+        } catch (IOException e) {
+            closeAll(outPipe);
+            closeAll(errPipe);
+            throw e;
+        } finally {
+            // the child has its own copies
+            DirectGNUCLibrary.close(outPipe[1]);
+            if (errPipe != null) {
+                DirectGNUCLibrary.close(errPipe[1]);
+            }
+        }
+        SpawnedProcess process = new SpawnedProcess(pid);
+        try {
+            register(outPipe[0], out);
+        } catch (NativeAccessException e) {
+            DirectGNUCLibrary.close(outPipe[0]);
+            if (errPipe != null) {
+                DirectGNUCLibrary.close(errPipe[0]);
+            }
+            process.destroy();
+            throw e;
+        }
+        if (errPipe != null) {
+            try {
+                register(errPipe[0], err);
+            } catch (NativeAccessException e) {
+                DirectGNUCLibrary.close(errPipe[0]);
+                process.destroy();
+                throw e;
+            }
+        }
+        return process;
+    }
+
+    private static int[] pipe() throws NativeAccessException {
+        int[] fds = new int[2];
+        if (LIBC.pipe2(fds, O_CLOEXEC) != 0) {
+            throw new NativeAccessException("Failed to create pipe. " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        return fds;
+    }
+
+    private static void closeAll(int[] fds) {
+        if (fds != null) {
+            DirectGNUCLibrary.close(fds[0]);
+            DirectGNUCLibrary.close(fds[1]);
+        }
+    }
+
+    private static int spawn(ProcessBuilder builder, List<String> command, int outFd, int errFd) throws IOException {
+        List<String> environment = new ArrayList<String>();
+        for (Map.Entry<String, String> variable : builder.environment().entrySet()) {
+            environment.add(variable.getKey() + "=" + variable.getValue());
+        }
+        Memory actions = new Memory(SIZEOF_SPAWN_FILE_ACTIONS);
+        int r = LIBC.posix_spawn_file_actions_init(actions);
+        if (r != 0) {
+            throw new IOException("Cannot run program \"" + command.get(0) + "\": " + DirectGNUCLibrary.strerror(r));
+        }
+        try {
+            // dup2 clears close-on-exec on the copies, the originals are closed by exec
+            r = LIBC.posix_spawn_file_actions_addopen(actions, 0, "/dev/null", O_RDONLY, 0);
+            if (r == 0) {
+                r = LIBC.posix_spawn_file_actions_adddup2(actions, outFd, 1);
+            }
+            if (r == 0) {
+                r = LIBC.posix_spawn_file_actions_adddup2(actions, errFd, 2);
+            }
+            if (r == 0 && builder.directory() != null) {
+                try {
+                    r = LIBC.posix_spawn_file_actions_addchdir_np(actions, builder.directory().getPath());
+                } catch (LinkageError e) {
+                    throw new IOException("Cannot run program \"" + command.get(0) + "\" in a directory, glibc 2.29 is required");
+                }
+            }
+            IntByReference pid = new IntByReference();
+            if (r == 0) {
+                r = LIBC.posix_spawnp(pid, command.get(0), actions, null, command.toArray(new String[command.size()]),
+                        environment.toArray(new String[environment.size()]));
+            }
+            if (r != 0) {
+                throw new IOException("Cannot run program \"" + command.get(0) + "\": " + DirectGNUCLibrary.strerror(r));
+            }
+            return pid.getValue();
+        } finally {
+            LIBC.posix_spawn_file_actions_destroy(actions);
+        }
+    }
+
+    /**
+     * Number of pipes registered and not yet at their end.
+     */
+    public int getPipeCount() {
+        return sinks.size();
+    }
+
+    /**
+     * Stops the threads and closes the pipes still registered, without telling their sinks.
+     */
+    public void close() {
+        closed = true;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        for (int fd : sinks.keySet()) {
+            DirectGNUCLibrary.close(fd);
+        }
+        sinks.clear();
+        DirectGNUCLibrary.close(epollFd);
+    }
+
+    private int control(int op, int fd, Memory event) {
+        event.setInt(0, ARMED);
+        event.setLong(EPOLL_EVENT_DATA, fd);
+        return EPOLL.epoll_ctl(epollFd, op, fd, event);
+    }
+
+    private void pump() {
+        Memory events = new Memory(SIZEOF_EPOLL_EVENT);
+        Memory buffer = new Memory(BUFFER_SIZE);
+        while (!closed) {
+            try {
+                // one event at a time, the other threads take the rest
+                int n = EPOLL.epoll_wait(epollFd, events, 1, 1000);
+                if (n <= 0) {
+                    continue;
+                }
+                int fd = (int) events.getLong(EPOLL_EVENT_DATA);
+                PipeSink sink = sinks.get(fd);
+                if (sink != null) {
+                    drain(fd, sink, buffer, events);
+                }
+            } catch (Throwable t) {
+                LOGGER.log(Level.WARNING, "Pipe reactor failed", t);
+            }
+        }
+    }
+
+    /**
+     * Reads what the pipe has, up to a limit, then arms it again or closes it at its end.
+     */
+    private void drain(int fd, PipeSink sink, Memory buffer, Memory event) {
+        String error = null;
+        for (int i = 0; i < MAX_READS; i++) {
+            int n = LIBC.read(fd, buffer, BUFFER_LENGTH);
+            if (n > 0) {
+                deliver(sink, buffer, n);
+                continue;
+            }
+            if (n < 0) {
+                int err = Native.getLastError();
+                if (err == EINTR) {
+                    continue;
+                }
+                if (err == EAGAIN) {
+                    rearm(fd, sink, event);
+                    return;
+                }
+                error = DirectGNUCLibrary.strerror(err);
+            }
+            // end of stream
+            sinks.remove(fd);
+            EPOLL.epoll_ctl(epollFd, EPOLL_CTL_DEL, fd, null);
+            DirectGNUCLibrary.close(fd);
+            try {
+                sink.closed(error);
+            } catch (Throwable t) {
+                LOGGER.log(Level.WARNING, "Pipe sink failed", t);
+            }
+            return;
+        }
+        // more to read, let the other pipes have a turn first
+        rearm(fd, sink, event);
+    }
+
+    private void rearm(int fd, PipeSink sink, Memory event) {
+        if (control(EPOLL_CTL_MOD, fd, event) != 0) {
+            String error = DirectGNUCLibrary.strerror(Native.getLastError());
+            sinks.remove(fd);
+            DirectGNUCLibrary.close(fd);
+            sink.closed(error);
+        }
+    }
+
+    private static void deliver(PipeSink sink, Memory buffer, int n) {
+        try {
+            sink.data(buffer.getByteBuffer(0, n));
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Pipe sink failed", t);
+        }
+    }
+}
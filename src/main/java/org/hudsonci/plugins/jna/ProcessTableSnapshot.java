@@ -0,0 +1,297 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+/**
+ * A view of the process table that is brought up to date by {@link #refresh()}. A refresh
+ * reads the parent and start time of every process, but the command line and environment
+ * only of the processes started since the last refresh. A pid that was reused is told
+ * apart by its start time. A process whose name or executable changed has run another
+ * program, it is read again and reported as removed and added.
+ *
+ * <p>
+ * The pids, parents and start times are kept in arrays sorted by pid, along with an index
+ * of the children of every process, so that kill-tree, monitoring and leak detection can
+ * share one snapshot. See {@link JnaNativeUnixSupport#getProcessTable()}.
+ */
+public class ProcessTableSnapshot {
+
+    private static final int[] NO_PIDS = new int[0];
+
+    private final ExecutorService executor;
+    private int[] pids = NO_PIDS;
+    private int[] ppids = NO_PIDS;
+    private long[] startTimes = new long[0];
+    private LinuxProcess[] processes = new LinuxProcess[0];
+    // (ppid << 32 | index) sorted, the children of a process are a range of it
+    private long[] children = new long[0];
+    private List<LinuxProcess> added = Collections.emptyList();
+    private List<LinuxProcess> removed = Collections.emptyList();
+    private int refreshCount;
+    private final Map<String, EnvironmentIndex> environmentIndexes = new HashMap<String, EnvironmentIndex>();
+
+    ProcessTableSnapshot(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Reads the process table again. The processes started and ended since the last refresh
+     * are then returned by {@link #getAdded()} and {@link #getRemoved()}.
+     */
+    public synchronized void refresh() throws NativeAccessException {
+        int[] newPids = LinuxProcessTable.listPids();
+        Arrays.sort(newPids);
+        // the processes that were already there, at the index of their pid
+        LinuxProcess[] previous = new LinuxProcess[newPids.length];
+        for (int i = 0, j = 0; i < newPids.length && j < pids.length;) {
+            if (newPids[i] < pids[j]) {
+                i++;
+            } else if (newPids[i] > pids[j]) {
+                j++;
+            } else {
+                previous[i++] = processes[j++];
+            }
+        }
+        LinuxProcess[] read;
+        try {
+            read = LinuxProcessTable.read(newPids, previous, executor);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new NativeAccessException("Interrupted while reading the processes");
+        }
+
+        int count = 0;
+        List<LinuxProcess> newAdded = new ArrayList<LinuxProcess>();
+        for (int i = 0; i < read.length; i++) {
+            if (read[i] != null) {
+                if (previous[i] == null || !isSameProgram(previous[i], read[i])) {
+                    newAdded.add(read[i]);
+                }
+                newPids[count] = newPids[i];
+                read[count++] = read[i];
+            }
+        }
+        // the old processes whose start time, name and executable are not found any more have
+        // ended, or run another program
+        List<LinuxProcess> newRemoved = new ArrayList<LinuxProcess>();
+        for (int i = 0, j = 0; j < pids.length; j++) {
+            while (i < count && newPids[i] < pids[j]) {
+                i++;
+            }
+            if (i == count || newPids[i] != pids[j] || !isSameProgram(processes[j], read[i])) {
+                newRemoved.add(processes[j]);
+            }
+        }
+
+        pids = Arrays.copyOf(newPids, count);
+        processes = Arrays.copyOf(read, count);
+        ppids = new int[count];
+        startTimes = new long[count];
+        children = new long[count];
+        for (int i = 0; i < count; i++) {
+            ppids[i] = processes[i].getPpid();
+            startTimes[i] = processes[i].getStartTime();
+            children[i] = ((long) ppids[i] << 32) | i;
+        }
+        Arrays.sort(children);
+        LinuxProcessTable.linkChildren(Arrays.asList(processes));
+        added = Collections.unmodifiableList(newAdded);
+        removed = Collections.unmodifiableList(newRemoved);
+        refreshCount++;
+        for (EnvironmentIndex index : environmentIndexes.values()) {
+            index.update(added, removed);
+        }
+    }
+
+    private static boolean isSameProgram(LinuxProcess previous, LinuxProcess process) {
+        return previous.getStartTime() == process.getStartTime() && previous.getName().equals(process.getName())
+                && previous.hasExecutableOf(process);
+    }
+
+    /**
+     * The number of times the snapshot was refreshed.
+     */
+    public synchronized int getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     * The number of processes.
+     */
+    public synchronized int size() {
+        return pids.length;
+    }
+
+    /**
+     * The pids of all processes, in ascending order.
+     */
+    public synchronized int[] getPids() {
+        return pids.clone();
+    }
+
+    /**
+     * Tells whether the process is in the snapshot.
+     */
+    public synchronized boolean contains(int pid) {
+        return Arrays.binarySearch(pids, pid) >= 0;
+    }
+
+    /**
+     * The parent of the process, or -1 if there is no such process.
+     */
+    public synchronized int getPpid(int pid) {
+        int i = Arrays.binarySearch(pids, pid);
+        return i >= 0 ? ppids[i] : -1;
+    }
+
+    /**
+     * The start time of the process in clock ticks after boot, or -1 if there is no such process.
+     */
+    public synchronized long getStartTime(int pid) {
+        int i = Arrays.binarySearch(pids, pid);
+        return i >= 0 ? startTimes[i] : -1;
+    }
+
+    /**
+     * The process, or null if there is no such process.
+     */
+    public synchronized LinuxProcess getProcess(int pid) {
+        int i = Arrays.binarySearch(pids, pid);
+        return i >= 0 ? processes[i] : null;
+    }
+
+    /**
+     * All processes, in the order of their pids.
+     */
+    public synchronized List<LinuxProcess> getProcesses() {
+        return Collections.unmodifiableList(Arrays.asList(processes.clone()));
+    }
+
+    /**
+     * The pids of the children of the process, in ascending order.
+     */
+    public synchronized int[] getChildren(int pid) {
+        int from = firstChild(pid);
+        int to = firstChild(pid + 1);
+        int[] result = new int[to - from];
+        for (int i = from; i < to; i++) {
+            result[i - from] = pids[(int) children[i]];
+        }
+        return result;
+    }
+
+    /**
+     * The pids of the descendants of the process, parents before their children.
+     */
+    public synchronized int[] getDescendants(int pid) {
+        int[] result = new int[16];
+        int count = 0;
+        int next = -1;
+        while (true) {
+            int from = firstChild(pid);
+            int to = firstChild(pid + 1);
+            for (int i = from; i < to; i++) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = pids[(int) children[i]];
+            }
+            // the descendants found so far are visited in turn
+            if (++next == count) {
+                break;
+            }
+            pid = result[next];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * The processes that were started since the refresh before the last one.
+     */
+    public synchronized List<LinuxProcess> getAdded() {
+        return added;
+    }
+
+    /**
+     * The processes that ended since the refresh before the last one.
+     */
+    public synchronized List<LinuxProcess> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * The pids of the processes whose environment has the variable with the value, in
+     * ascending order. The environments are searched as read, without decoding them.
+     */
+    public synchronized int[] findByEnvironment(String name, String value) {
+        EnvironmentIndex index = environmentIndexes.get(name);
+        if (index != null) {
+            return index.getPids(value);
+        }
+        byte[] entry = LinuxProcess.encode(name + "=" + value);
+        int[] result = new int[4];
+        int count = 0;
+        for (LinuxProcess process : processes) {
+            if (process.hasEnvironmentEntry(entry)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = process.getPid();
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the index of the processes by the value of the environment variable, which
+     * is kept up to date by each refresh. It is created when first asked for and then also
+     * used by {@link #findByEnvironment(String, String)}.
+     */
+    public synchronized EnvironmentIndex getEnvironmentIndex(String name) {
+        EnvironmentIndex index = environmentIndexes.get(name);
+        if (index == null) {
+            index = new EnvironmentIndex(name);
+            index.update(Arrays.asList(processes), Collections.<LinuxProcess>emptyList());
+            environmentIndexes.put(name, index);
+        }
+        return index;
+    }
+
+    // the index in children of the first child of the pid, or of the next parent
+    private int firstChild(int pid) {
+        long key = (long) pid << 32;
+        int i = Arrays.binarySearch(children, key);
+        // the index part is never negative, so the key is not found but its insertion point is
+        return i >= 0 ? i : -i - 1;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Kills a process tree through {@link LinuxProcessHandle}s. The processes are stopped
+ * first, parents before their children, so that none can fork once its descendants
+ * were collected. They are then sent SIGTERM and continued, and those still running
+ * after a grace period are sent SIGKILL.
+ */
+final class ProcessTreeKiller {
+
+    private static final Logger LOGGER = Logger.getLogger(ProcessTreeKiller.class.getName());
+
+    // how often the table is read again for children forked before their parent was stopped
+    private static final int MAX_ROUNDS = 5;
+
+    // how long the processes are waited for after SIGKILL
+    private static final long KILL_WAIT_MILLIS = 1000;
+
+    private final ProcessTableSnapshot table;
+    private final Set<Integer> collected = new HashSet<Integer>();
+    private final List<LinuxProcessHandle> handles = new ArrayList<LinuxProcessHandle>();
+
+    /**
+     * @param table the table the descendants are found in, refreshed while stopping them,
+     * or null to use the children of the processes as they were read
+     */
+    ProcessTreeKiller(ProcessTableSnapshot table) {
+        this.table = table;
+    }
+
+    /**
+     * Stops the process and its descendants.
+     */
+    void freeze(LinuxProcess root) {
+        collect(root);
+        if (table == null) {
+            return;
+        }
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            table.refresh();
+            int count = handles.size();
+            for (int i = 0; i < count; i++) {
+                for (int child : table.getChildren(handles.get(i).getPid())) {
+                    LinuxProcess process = table.getProcess(child);
+                    if (!collected.contains(child) && process != null) {
+                        collect(process);
+                    }
+                }
+            }
+            if (handles.size() == count) {
+                return;
+            }
+        }
+    }
+
+    private void collect(LinuxProcess process) {
+        if (!collected.add(process.getPid())) {
+            return;
+        }
+        LinuxProcessHandle handle = LinuxProcessHandle.open(process);
+        if (handle == null) {
+            return;
+        }
+        handles.add(handle);
+        signal(handle, SIGSTOP);
+        List<LinuxProcess> children;
+        if (table != null) {
+            children = new ArrayList<LinuxProcess>();
+            for (int child : table.getChildren(process.getPid())) {
+                LinuxProcess childProcess = table.getProcess(child);
+                if (childProcess != null) {
+                    children.add(childProcess);
+                }
+            }
+        } else {
+            children = process.getChildren();
+        }
+        for (LinuxProcess child : children) {
+            collect(child);
+        }
+    }
+
+    /**
+     * Sends SIGTERM to the stopped processes and continues them.
+     */
+    void terminate() {
+        for (LinuxProcessHandle handle : handles) {
+            if (signal(handle, SIGTERM)) {
+                signal(handle, SIGCONT);
+            }
+        }
+    }
+
+    /**
+     * Waits for the processes to exit and sends SIGKILL to those still running after the grace period.
+     *
+     * @return true if all processes have exited
+     */
+    boolean awaitOrKill(long gracePeriodMillis) throws InterruptedException {
+        List<LinuxProcessHandle> running = LinuxProcessHandle.waitFor(handles, gracePeriodMillis);
+        if (running.isEmpty()) {
+            return true;
+        }
+        for (LinuxProcessHandle handle : running) {
+            signal(handle, SIGKILL);
+        }
+        return LinuxProcessHandle.waitFor(running, KILL_WAIT_MILLIS).isEmpty();
+    }
+
+    void close() {
+        for (LinuxProcessHandle handle : handles) {
+            handle.close();
+        }
+    }
+
+    private static boolean signal(LinuxProcessHandle handle, int signal) {
+        try {
+            return handle.signal(signal);
+        } catch (NativeAccessException ex) {
+            // a process of another user, the rest of the tree is still killed
+            LOGGER.log(Level.FINE, "Failed to signal " + handle, ex);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Reads a file from start to end without pushing other files out of the page cache.
+ * The kernel is told the file is read sequentially, so it reads further ahead, and,
+ * with drop-behind, that the pages already read are not needed any more, so that
+ * streaming a large artifact does not evict the small files every request needs.
+ *
+ * <p>
+ * Drop-behind also drops the pages for other readers of the same file, so leave it
+ * off for files that are read often. Linux only. A stream is not thread safe.
+ */
+public class SequentialFileInputStream extends InputStream {
+
+    private static final int BUFFER_SIZE = 128 * 1024;
+    private static final NativeLong BUFFER_LENGTH = new NativeLong(BUFFER_SIZE);
+
+    /**
+     * Amount read between two DONTNEED calls, so that they stay rare.
+     */
+    private static final long DROP_INTERVAL = 8 * 1024 * 1024;
+
+    private final File file;
+    private final boolean dropBehind;
+    private int fd;
+    private Memory buffer = new Memory(BUFFER_SIZE);
+    private int offset;
+    private int length;
+    // file offset of the end of the buffer, and up to where pages were dropped
+    private long position;
+    private long dropped;
+
+    /**
+     * Takes ownership of {@code fd}.
+     */
+    SequentialFileInputStream(int fd, File file, boolean dropBehind) {
+        this.fd = fd;
+        this.file = file;
+        this.dropBehind = dropBehind;
+        // only a hint, failing it does no harm
+        LIBC.posix_fadvise64(fd, 0, 0, POSIX_FADV_SEQUENTIAL);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (offset == length && !fill()) {
+            return -1;
+        }
+        return buffer.getByte(offset++) & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (offset == length && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, length - offset);
+        buffer.read(offset, b, off, n);
+        offset += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= length - offset) {
+            offset += Math.max(n, 0);
+            return Math.max(n, 0);
+        }
+        checkOpen();
+        long skipped = length - offset;
+        long size = LIBC.lseek64(fd, 0, SEEK_END);
+        long target = Math.min(position + n - skipped, size);
+        if (size < 0 || LIBC.lseek64(fd, target, SEEK_SET) < 0) {
+            throw new IOException("Failed to skip in " + file + ". " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        skipped += target - position;
+        position = target;
+        offset = length = 0;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return length - offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fd >= 0) {
+            if (dropBehind) {
+                dropConsumed();
+            }
+            DirectGNUCLibrary.close(fd);
+            fd = -1;
+            buffer = null;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        checkOpen();
+        int n;
+        do {
+            n = LIBC.read(fd, buffer, BUFFER_LENGTH);
+        } while (n < 0 && Native.getLastError() == EINTR);
+        if (n < 0) {
+            throw new IOException("Failed to read " + file + ". " + DirectGNUCLibrary.strerror(Native.getLastError()));
+        }
+        offset = 0;
+        length = n;
+        position += n;
+        if (dropBehind && position - dropped >= DROP_INTERVAL) {
+            dropConsumed();
+        }
+        return n > 0;
+    }
+
+    private void dropConsumed() {
+        // the buffer holds a copy, the pages behind it are not needed
+        long end = position - length + offset;
+        LIBC.posix_fadvise64(fd, dropped, end - dropped, POSIX_FADV_DONTNEED);
+        // the partly read page at the end is kept, drop it next time
+        dropped = end & ~4095L;
+    }
+
+    private void checkOpen() throws IOException {
+        if (fd < 0) {
+            throw new IOException("Stream of " + file + " is closed");
+        }
+    }
+}
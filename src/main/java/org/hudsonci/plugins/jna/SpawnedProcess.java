@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Native;
+import com.sun.jna.ptr.IntByReference;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * A child started with posix_spawn by {@link PipeReactor#start(ProcessBuilder, PipeSink, PipeSink)}.
+ * Its output goes to the pipes of the reactor, so its streams are empty, and it reads from
+ * /dev/null. It is reaped with waitpid by {@link #waitFor()} and {@link #exitValue()}; as with
+ * the JDK, a process killed by a signal exits with 128 + the signal.
+ */
+class SpawnedProcess extends Process {
+
+    private final int pid;
+    // guarded by this
+    private boolean exited;
+    private int exitValue;
+
+    SpawnedProcess(int pid) {
+        this.pid = pid;
+    }
+
+    /**
+     * The pid, also returned by {@code Process.pid()} since Java 9.
+     */
+    public long pid() {
+        return pid;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return new OutputStream() {
+
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Stream closed");
+            }
+        };
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return EmptyInputStream.INSTANCE;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return EmptyInputStream.INSTANCE;
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        synchronized (this) {
+            if (exited) {
+                return exitValue;
+            }
+        }
+        // outside of the lock, so that destroy is not held up
+        IntByReference status = new IntByReference();
+        while (LIBC.waitpid(pid, status, 0) < 0) {
+            if (Native.getLastError() != EINTR) {
+                break;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return reaped(status.getValue());
+    }
+
+    @Override
+    public synchronized int exitValue() {
+        if (exited) {
+            return exitValue;
+        }
+        IntByReference status = new IntByReference();
+        if (LIBC.waitpid(pid, status, WNOHANG) == 0) {
+            throw new IllegalThreadStateException("Process " + pid + " has not exited");
+        }
+        return reaped(status.getValue());
+    }
+
+    private synchronized int reaped(int status) {
+        if (!exited) {
+            int signal = status & 0x7f;
+            exitValue = signal == 0 ? (status >> 8) & 0xff : 128 + signal;
+            exited = true;
+        }
+        return exitValue;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        // not once it is reaped, the pid might belong to another process by now
+        if (!exited) {
+            LIBC.kill(pid, SIGTERM);
+        }
+    }
+
+    private static class EmptyInputStream extends InputStream {
+
+        static final EmptyInputStream INSTANCE = new EmptyInputStream();
+
+        @Override
+        public int read() {
+            return -1;
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+    }
+}
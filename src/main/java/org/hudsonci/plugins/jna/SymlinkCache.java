@@ -0,0 +1,333 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.hudson.jna.NativeAccessException;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+import static org.hudsonci.plugins.jna.InotifyLibrary.*;
+
+/**
+ * Caches the targets of resolved symlinks, such as the permalinks of a job's build records.
+ *
+ * <p>
+ * The directory of every cached link is watched with inotify, and an entry is evicted as
+ * soon as its directory reports that a file of that name was created, deleted or moved,
+ * which is how a symlink gets replaced. The number of entries is bounded; the least recently
+ * used are dropped first, along with the watch of their directory once it has no entries left.
+ *
+ * <p>
+ * Linux only. Enabled in {@link JnaNativeUnixSupport#resolveSymlink(File)} by setting the
+ * system property {@code org.hudsonci.plugins.jna.JnaNativeUnixSupport.symlinkCacheSize}.
+ */
+public class SymlinkCache {
+
+    private static final Logger LOGGER = Logger.getLogger(SymlinkCache.class.getName());
+
+    private static final int WATCH_MASK = IN_CREATE | IN_DELETE | IN_MOVED_FROM | IN_MOVED_TO
+            | IN_DELETE_SELF | IN_MOVE_SELF | IN_ONLYDIR;
+
+    private static final int EVENT_BUFFER_SIZE = 64 * 1024;
+
+    // cached value of a file that is not a symlink, compared by identity
+    private static final String NOT_A_SYMLINK = new String("");
+
+    private final JnaNativeUnixSupport resolver;
+    private final int inotifyFd;
+    private final Map<File, String> entries;
+    private final Map<File, DirectoryWatch> watchesByDir = new HashMap<File, DirectoryWatch>();
+    private final Map<Integer, DirectoryWatch> watchesByWd = new HashMap<Integer, DirectoryWatch>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile boolean closed;
+
+    private static class DirectoryWatch {
+
+        final File dir;
+        // every name the directory is watched under, links are cached by each of them
+        final List<File> aliases = new ArrayList<File>();
+        final int wd;
+        int entries;
+        // bumped by every event, so that a concurrent lookup does not cache a stale target
+        long generation;
+
+        DirectoryWatch(File dir, int wd) {
+            this.dir = dir;
+            this.wd = wd;
+            aliases.add(dir);
+        }
+    }
+
+    /**
+     * @param resolver reads the links missing from the cache
+     * @param capacity maximum number of cached links
+     */
+    public SymlinkCache(JnaNativeUnixSupport resolver, final int capacity) throws NativeAccessException {
+        this.resolver = resolver;
+        this.entries = new LinkedHashMap<File, String>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, String> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                remove(eldest.getKey());
+                entryRemoved(eldest.getKey());
+                return false;
+            }
+        };
+        try {
+            inotifyFd = INOTIFY.inotify_init1(IN_NONBLOCK | IN_CLOEXEC);
+        } catch (LinkageError e) {
+            throw new NativeAccessException("inotify is not available. " + e.getLocalizedMessage());
+        }
+        if (inotifyFd < 0) {
+            throw new NativeAccessException("Failed to initialize inotify. " + LIBC.strerror(Native.getLastError()));
+        }
+        Thread reader = new Thread(new Runnable() {
+
+            public void run() {
+                readEvents();
+            }
+        }, "Symlink cache inotify reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Returns the target of the symlink, or null if the file is not a symlink.
+     */
+    public String resolve(File linkFile) throws NativeAccessException {
+        File link = linkFile.getAbsoluteFile();
+        DirectoryWatch watch;
+        long generation;
+        synchronized (this) {
+            String target = entries.get(link);
+            if (target != null) {
+                hits.incrementAndGet();
+                return target == NOT_A_SYMLINK ? null : target;
+            }
+            misses.incrementAndGet();
+            // watch before reading, so that a change made while we read is not missed
+            watch = watch(link.getParentFile());
+            generation = watch == null ? 0 : watch.generation;
+        }
+
+        String target = resolver.readSymlink(link);
+
+        synchronized (this) {
+            if (watch != null && watchesByDir.get(watch.dir) == watch) {
+                if (watch.generation == generation && !closed) {
+                    if (entries.put(link, target == null ? NOT_A_SYMLINK : target) == null) {
+                        watch.entries++;
+                    }
+                }
+                if (watch.entries == 0) {
+                    unwatch(watch);
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Number of lookups answered from the cache, without a readlink call.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of lookups that had to call readlink.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of entries evicted because their directory changed.
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Empties the cache and stops watching. The cache must not be used afterwards.
+     */
+    public synchronized void close() {
+        closed = true;
+        entries.clear();
+        for (DirectoryWatch watch : watchesByWd.values()) {
+            INOTIFY.inotify_rm_watch(inotifyFd, watch.wd);
+        }
+        watchesByDir.clear();
+        watchesByWd.clear();
+    }
+
+    private DirectoryWatch watch(File dir) {
+        if (dir == null || closed) {
+            return null;
+        }
+        DirectoryWatch watch = watchesByDir.get(dir);
+        if (watch == null) {
+            int wd = INOTIFY.inotify_add_watch(inotifyFd, dir.getPath(), WATCH_MASK);
+            if (wd < 0) {
+                // e.g. out of watches, the link is then just not cached
+                LOGGER.log(Level.FINE, "Failed to watch {0}: {1}", new Object[]{dir, LIBC.strerror(Native.getLastError())});
+                return null;
+            }
+            watch = watchesByWd.get(wd);
+            if (watch == null) {
+                // the same directory may already be watched under another name
+                watch = new DirectoryWatch(dir, wd);
+                watchesByWd.put(wd, watch);
+            } else {
+                watch.aliases.add(dir);
+            }
+            watchesByDir.put(dir, watch);
+        }
+        return watch;
+    }
+
+    private void unwatch(DirectoryWatch watch) {
+        INOTIFY.inotify_rm_watch(inotifyFd, watch.wd);
+        forget(watch);
+    }
+
+    private void forget(DirectoryWatch watch) {
+        watchesByWd.remove(watch.wd);
+        for (File alias : watch.aliases) {
+            watchesByDir.remove(alias);
+        }
+    }
+
+    private void entryRemoved(File link) {
+        DirectoryWatch watch = watchesByDir.get(link.getParentFile());
+        if (watch != null && --watch.entries <= 0) {
+            unwatch(watch);
+        }
+    }
+
+    private void invalidateDirectory(DirectoryWatch watch) {
+        for (Iterator<File> it = entries.keySet().iterator(); it.hasNext();) {
+            if (watchesByDir.get(it.next().getParentFile()) == watch) {
+                it.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    private void readEvents() {
+        Memory pollFd = new Memory(SIZEOF_POLLFD);
+        pollFd.setInt(0, inotifyFd);
+        pollFd.setShort(4, (short) POLLIN);
+        Memory buffer = new Memory(EVENT_BUFFER_SIZE);
+        NativeLong bufferSize = new NativeLong(EVENT_BUFFER_SIZE);
+        try {
+            while (!closed) {
+                pollFd.setShort(6, (short) 0);
+                if (LIBC.poll(pollFd, 1, 1000) <= 0) {
+                    continue;
+                }
+                int length = LIBC.read(inotifyFd, buffer, bufferSize);
+                if (length <= 0) {
+                    continue;
+                }
+                synchronized (this) {
+                    for (int offset = 0; offset < length;) {
+                        int wd = buffer.getInt(offset);
+                        int mask = buffer.getInt(offset + 4);
+                        int nameLength = buffer.getInt(offset + 12);
+                        String name = nameLength > 0 ? buffer.getString(offset + SIZEOF_INOTIFY_EVENT) : null;
+                        offset += SIZEOF_INOTIFY_EVENT + nameLength;
+                        handleEvent(wd, mask, name);
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Symlink cache stopped, disabling it", t);
+            synchronized (this) {
+                close();
+            }
+        } finally {
+            LIBC.close(inotifyFd);
+        }
+    }
+
+    private void handleEvent(int wd, int mask, String name) {
+        if ((mask & IN_Q_OVERFLOW) != 0) {
+            // events were lost, nothing in the cache can be trusted
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+            for (DirectoryWatch watch : watchesByWd.values()) {
+                watch.generation++;
+                INOTIFY.inotify_rm_watch(inotifyFd, watch.wd);
+            }
+            watchesByDir.clear();
+            watchesByWd.clear();
+            return;
+        }
+        DirectoryWatch watch = watchesByWd.get(wd);
+        if (watch == null) {
+            return;
+        }
+        watch.generation++;
+        if ((mask & (IN_IGNORED | IN_DELETE_SELF | IN_MOVE_SELF)) != 0) {
+            invalidateDirectory(watch);
+            if ((mask & IN_IGNORED) != 0) {
+                forget(watch);
+            } else {
+                unwatch(watch);
+            }
+        } else if (name != null) {
+            for (File alias : watch.aliases) {
+                if (entries.remove(new File(alias, name)) != null) {
+                    invalidations.incrementAndGet();
+                    watch.entries--;
+                }
+            }
+            if (watch.entries <= 0) {
+                unwatch(watch);
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Platform;
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.hudson.jna.NativeAccessException;
+import org.eclipse.hudson.jna.NativeSystemMemory;
+import org.jvnet.hudson.MemoryMonitor;
+import org.jvnet.hudson.MemoryUsage;
+
+/**
+ * Samples the system memory in the background and keeps the last samples, so that the
+ * memory can be asked for as often as wanted without reading it each time. The samples
+ * are kept in a ring of primitive arrays, which also gives the minimum, average and
+ * maximum over a recent window.
+ *
+ * <p>
+ * On Linux, the memory of the host is capped by the limits of the {@link Cgroup} of the
+ * process, so that a container reports the memory it may actually use.
+ */
+public class SystemMemorySampler {
+
+    private static final Logger LOGGER = Logger.getLogger(SystemMemorySampler.class.getName());
+
+    // indices of the values of a sample
+    private static final int AVAILABLE_PHYSICAL = 0;
+    private static final int AVAILABLE_SWAP = 1;
+    private static final int TOTAL_PHYSICAL = 2;
+    private static final int TOTAL_SWAP = 3;
+    private static final int VALUES = 4;
+
+    // periods without a sample after which the latest one is no longer handed out
+    private static final int STALE_PERIODS = 3;
+
+    // guarded by this
+    private final long[] times;
+    private final long[] values;
+    private int next;
+    private int count;
+
+    private volatile Sample latest;
+    private volatile boolean failing;
+    private final long periodMillis;
+    private final Cgroup cgroup;
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Immutable sample, as handed out.
+     */
+    private static class Sample implements NativeSystemMemory {
+
+        final long availablePhysical;
+        final long availableSwap;
+        final long totalPhysical;
+        final long totalSwap;
+        final long time = System.currentTimeMillis();
+
+        Sample(long availablePhysical, long availableSwap, long totalPhysical, long totalSwap) {
+            this.availablePhysical = availablePhysical;
+            this.availableSwap = availableSwap;
+            this.totalPhysical = totalPhysical;
+            this.totalSwap = totalSwap;
+        }
+
+        public long getAvailablePhysicalMemory() {
+            return availablePhysical;
+        }
+
+        public long getAvailableSwapSpace() {
+            return availableSwap;
+        }
+
+        public long getTotalPhysicalMemory() {
+            return totalPhysical;
+        }
+
+        public long getTotalSwapSpace() {
+            return totalSwap;
+        }
+    }
+
+    /**
+     * @param periodMillis time between two samples, 0 to only sample on demand
+     * @param capacity number of samples kept, at least 1
+     */
+    public SystemMemorySampler(long periodMillis, int capacity) {
+        this(periodMillis, capacity, Platform.isLinux() ? Cgroup.detect(new File("/")) : null);
+    }
+
+    /**
+     * @param cgroup whose limits cap the memory, null for none
+     */
+    SystemMemorySampler(long periodMillis, int capacity, Cgroup cgroup) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The number of samples kept must be positive: " + capacity);
+        }
+        this.periodMillis = periodMillis;
+        this.cgroup = cgroup;
+        times = new long[capacity];
+        values = new long[capacity * VALUES];
+        if (periodMillis <= 0) {
+            timer = null;
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "System memory sampler");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        timer.scheduleAtFixedRate(new Runnable() {
+
+            public void run() {
+                try {
+                    sampleNow();
+                    failing = false;
+                } catch (Throwable t) {
+                    // once per run of failures, getLatest() reports them when the sample gets stale
+                    LOGGER.log(failing ? Level.FINE : Level.WARNING, "Failed to sample the system memory", t);
+                    failing = true;
+                }
+            }
+        }, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the latest sample, taking one if there is none yet, or if the background
+     * sampling has not produced one for a few periods, in which case the failure to
+     * sample is thrown.
+     */
+    public NativeSystemMemory getLatest() throws NativeAccessException {
+        Sample sample = latest;
+        if (sample == null || (timer != null && System.currentTimeMillis() - sample.time > STALE_PERIODS * periodMillis)) {
+            return sampleNow();
+        }
+        return sample;
+    }
+
+    /**
+     * Takes a sample right away, for callers that need a fresh value, and adds it to
+     * the history.
+     */
+    public NativeSystemMemory sampleNow() throws NativeAccessException {
+        MemoryUsage usage;
+        try {
+            usage = readMemoryUsage();
+        } catch (Throwable exc) {
+            throw new NativeAccessException("Failed to get System Memory. " + exc.getLocalizedMessage());
+        }
+        Sample sample;
+        if (cgroup != null && cgroup.getVersion() > 0) {
+            CgroupLimits limits = cgroup.read();
+            sample = new Sample(limits.capAvailableMemory(usage.availablePhysicalMemory),
+                    limits.capAvailableSwap(usage.availableSwapSpace),
+                    limits.capTotalMemory(usage.totalPhysicalMemory), limits.capTotalSwap(usage.totalSwapSpace));
+        } else {
+            sample = new Sample(usage.availablePhysicalMemory, usage.availableSwapSpace,
+                    usage.totalPhysicalMemory, usage.totalSwapSpace);
+        }
+        synchronized (this) {
+            times[next] = sample.time;
+            int base = next * VALUES;
+            values[base + AVAILABLE_PHYSICAL] = sample.availablePhysical;
+            values[base + AVAILABLE_SWAP] = sample.availableSwap;
+            values[base + TOTAL_PHYSICAL] = sample.totalPhysical;
+            values[base + TOTAL_SWAP] = sample.totalSwap;
+            next = (next + 1) % times.length;
+            count = Math.min(count + 1, times.length);
+            latest = sample;
+        }
+        return sample;
+    }
+
+    /**
+     * Number of samples kept.
+     */
+    public synchronized int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * The smallest value of each field over the samples of the last {@code windowMillis},
+     * or null if there are none.
+     */
+    public NativeSystemMemory getMinimum(long windowMillis) {
+        return aggregate(windowMillis, -1);
+    }
+
+    /**
+     * The average of each field over the samples of the last {@code windowMillis}, or
+     * null if there are none.
+     */
+    public NativeSystemMemory getAverage(long windowMillis) {
+        return aggregate(windowMillis, 0);
+    }
+
+    /**
+     * The largest value of each field over the samples of the last {@code windowMillis},
+     * or null if there are none.
+     */
+    public NativeSystemMemory getMaximum(long windowMillis) {
+        return aggregate(windowMillis, 1);
+    }
+
+    /**
+     * The control group whose limits cap the memory, null if there is none.
+     */
+    public Cgroup getCgroup() {
+        return cgroup;
+    }
+
+    /**
+     * Stops sampling.
+     */
+    public void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the current memory usage, overridden by tests.
+     */
+    MemoryUsage readMemoryUsage() throws Exception {
+        return MemoryMonitor.get().monitor();
+    }
+
+    /**
+     * @param mode negative for the minimum, 0 for the average, positive for the maximum
+     */
+    private synchronized NativeSystemMemory aggregate(long windowMillis, int mode) {
+        long since = System.currentTimeMillis() - windowMillis;
+        long[] result = new long[VALUES];
+        int n = 0;
+        // newest first, stopping at the first sample out of the window
+        for (int i = 1; i <= count; i++) {
+            int index = (next - i + times.length) % times.length;
+            if (times[index] < since) {
+                break;
+            }
+            for (int v = 0; v < VALUES; v++) {
+                long value = values[index * VALUES + v];
+                if (n == 0) {
+                    result[v] = value;
+                } else if (mode < 0) {
+                    result[v] = Math.min(result[v], value);
+                } else if (mode > 0) {
+                    result[v] = Math.max(result[v], value);
+                } else {
+                    result[v] += value;
+                }
+            }
+            n++;
+        }
+        if (n == 0) {
+            return null;
+        }
+        if (mode == 0) {
+            for (int v = 0; v < VALUES; v++) {
+                result[v] /= n;
+            }
+        }
+        return new Sample(result[AVAILABLE_PHYSICAL], result[AVAILABLE_SWAP], result[TOTAL_PHYSICAL], result[TOTAL_SWAP]);
+    }
+}
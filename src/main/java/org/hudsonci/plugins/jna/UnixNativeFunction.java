@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import org.eclipse.hudson.jna.NativeFunction;
+
+/**
+ * Native functions offered by {@link JnaNativeUnixSupport} in addition to the
+ * {@link NativeFunction}s of the Hudson native support API. Check
+ * {@link JnaNativeUnixSupport#hasSupportFor(UnixNativeFunction)} before using one.
+ */
+public enum UnixNativeFunction {
+
+    /**
+     * {@link JnaNativeUnixSupport#deleteRecursively(java.io.File)}
+     */
+    DELETE_RECURSIVELY,
+    /**
+     * {@link JnaNativeUnixSupport#openDirectory(java.io.File)}
+     */
+    DIRECTORY_READER,
+    /**
+     * {@link JnaNativeUnixSupport#copyFile(java.io.File, java.io.File, CopyOptions)} and
+     * {@link JnaNativeUnixSupport#copyTree(java.io.File, java.io.File, CopyOptions)}
+     */
+    COPY_FILE,
+    /**
+     * {@link JnaNativeUnixSupport#linkTree(java.io.File, java.io.File, java.io.FileFilter, CopyOptions)}
+     */
+    LINK_TREE,
+    /**
+     * {@link JnaNativeUnixSupport#reflinkTree(java.io.File, java.io.File, boolean, CopyOptions)}
+     */
+    REFLINK_TREE,
+    /**
+     * Whether {@link JnaNativeUnixSupport#renameNoReplace(java.io.File, java.io.File)} and
+     * {@link JnaNativeUnixSupport#exchange(java.io.File, java.io.File)} are atomic. They
+     * are emulated otherwise.
+     */
+    ATOMIC_RENAME,
+    /**
+     * {@link JnaNativeUnixSupport#getDurabilityService()}
+     */
+    DURABILITY_SERVICE,
+    /**
+     * {@link JnaNativeUnixSupport#openSequential(java.io.File, boolean)} and
+     * {@link JnaNativeUnixSupport#prefetch(java.io.File, long, long)}
+     */
+    SEQUENTIAL_READ,
+    /**
+     * {@link JnaNativeUnixSupport#openLogTailer(java.io.File)}
+     */
+    LOG_TAILER,
+    /**
+     * {@link JnaNativeUnixSupport#newWatchService(long)}
+     */
+    WATCH_SERVICE,
+    /**
+     * {@link JnaNativeUnixSupport#getPipeReactor()}
+     */
+    PIPE_REACTOR,
+    /**
+     * {@link JnaNativeUnixSupport#getLinuxProcesses()},
+     * {@link JnaNativeUnixSupport#getProcessTable()} and
+     * {@link JnaNativeUnixSupport#findProcessesByEnvironment(String, String)}
+     */
+    PROCESS_LIST,
+    /**
+     * {@link JnaNativeUnixSupport#openProcessHandle(int)} and
+     * {@link JnaNativeUnixSupport#killProcessTree(int, long)}
+     */
+    PROCESS_HANDLE,
+    /**
+     * {@link JnaNativeUnixSupport#getChildExitNotifier()}
+     */
+    CHILD_EXIT_NOTIFIER
+}
@@ -0,0 +1,53 @@
+/*
+ * The MIT License
+ * 
+ * Copyright (c) 2026, Hudson contributors
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+
+/**
+ * Receives the changes reported by a {@link NativeWatchService}. All listeners of a
+ * service are called on its one dispatcher thread, so a listener should return quickly.
+ */
+public interface WatchListener {
+
+    // kinds of change, or-ed together when a file changed several ways
+    static final int CREATED = 1;
+    static final int DELETED = 2;
+    static final int MODIFIED = 4;
+    /**
+     * Changes were lost because too many happened at once. Reported for the registered
+     * directory, whose whole tree has to be rescanned.
+     */
+    static final int OVERFLOW = 8;
+
+    /**
+     * Called once per changed file for the changes that happened within the coalescing
+     * window of the service.
+     *
+     * @param file the file or directory that changed
+     * @param kinds the {@link #CREATED}, {@link #DELETED}, {@link #MODIFIED} and
+     * {@link #OVERFLOW} bits
+     */
+    void changed(File file, int kinds);
+}
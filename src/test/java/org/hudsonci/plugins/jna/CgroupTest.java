@@ -0,0 +1,126 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.MemoryUsage;
+
+/**
+ * Unit Test for Cgroup, against fixture cgroup file systems
+ */
+public class CgroupTest {
+
+    /**
+     * Test of cgroup v2, with a limit set on the parent group.
+     */
+    @Test
+    public void testVersion2() throws Exception {
+        File root = UnixFileCopyTest.createTempDir();
+        write(root, "proc/self/cgroup", "0::/system.slice/agent.service\n");
+        write(root, "sys/fs/cgroup/cgroup.controllers", "cpu memory\n");
+        write(root, "sys/fs/cgroup/system.slice/memory.max", "4294967296\n");
+        write(root, "sys/fs/cgroup/system.slice/cpu.max", "max 100000\n");
+        write(root, "sys/fs/cgroup/system.slice/agent.service/memory.max", "max\n");
+        write(root, "sys/fs/cgroup/system.slice/agent.service/memory.current", "1073741824\n");
+        write(root, "sys/fs/cgroup/system.slice/agent.service/memory.stat", "anon 536870912\n"
+                + "file 536870912\n"
+                + "active_file 268435456\n"
+                + "inactive_file 268435456\n");
+        write(root, "sys/fs/cgroup/system.slice/agent.service/memory.swap.max", "0\n");
+        write(root, "sys/fs/cgroup/system.slice/agent.service/cpu.max", "150000 100000\n");
+
+        Cgroup cgroup = Cgroup.detect(root);
+        Assert.assertEquals(2, cgroup.getVersion());
+        CgroupLimits limits = cgroup.read();
+        Assert.assertEquals(4294967296L, limits.getMemoryLimit());
+        Assert.assertEquals(1073741824L, limits.getMemoryUsage());
+        Assert.assertEquals(268435456L, limits.getInactiveFileMemory());
+        Assert.assertEquals(0, limits.getSwapLimit());
+        Assert.assertEquals(-1, limits.getSwapUsage());
+        Assert.assertTrue(limits.getCpuLimit() == 1.5);
+
+        SystemMemorySampler sampler = new SystemMemorySampler(0, 1, cgroup) {
+
+            @Override
+            MemoryUsage readMemoryUsage() {
+                return new MemoryUsage(16L << 30, 8L << 30, 2L << 30, 2L << 30);
+            }
+        };
+        Assert.assertEquals(4L << 30, sampler.sampleNow().getTotalPhysicalMemory());
+        // 4G limit - (1G usage - 256M inactive page cache)
+        Assert.assertEquals((3L << 30) + (256L << 20), sampler.getLatest().getAvailablePhysicalMemory());
+        Assert.assertEquals(0, sampler.getLatest().getTotalSwapSpace());
+        delete(root);
+    }
+
+    /**
+     * Test of cgroup v1, in a container without its own cgroup namespace.
+     */
+    @Test
+    public void testVersion1() throws Exception {
+        File root = UnixFileCopyTest.createTempDir();
+        write(root, "proc/self/cgroup", "12:memory:/docker/0123abcd\n"
+                + "4:cpu,cpuacct:/docker/0123abcd\n"
+                + "1:name=systemd:/docker/0123abcd\n");
+        write(root, "sys/fs/cgroup/memory/memory.limit_in_bytes", "2147483648\n");
+        write(root, "sys/fs/cgroup/memory/memory.usage_in_bytes", "536870912\n");
+        write(root, "sys/fs/cgroup/memory/memory.stat", "cache 134217728\n"
+                + "inactive_file 33554432\n"
+                + "total_cache 268435456\n"
+                + "total_inactive_file 67108864\n");
+        write(root, "sys/fs/cgroup/memory/memory.memsw.limit_in_bytes", "9223372036854771712\n");
+        write(root, "sys/fs/cgroup/cpu,cpuacct/cpu.cfs_quota_us", "200000\n");
+        write(root, "sys/fs/cgroup/cpu,cpuacct/cpu.cfs_period_us", "100000\n");
+
+        Cgroup cgroup = Cgroup.detect(root);
+        Assert.assertEquals(1, cgroup.getVersion());
+        CgroupLimits limits = cgroup.read();
+        Assert.assertEquals(2147483648L, limits.getMemoryLimit());
+        Assert.assertEquals(536870912L, limits.getMemoryUsage());
+        Assert.assertEquals(67108864L, limits.getInactiveFileMemory());
+        // 2G limit - (512M usage - 64M inactive page cache)
+        Assert.assertEquals((1536L << 20) + (64L << 20), limits.capAvailableMemory(8L << 30));
+        Assert.assertEquals(-1, limits.getSwapLimit());
+        Assert.assertTrue(limits.getCpuLimit() == 2);
+        delete(root);
+    }
+
+    /**
+     * Test of a process in no control group.
+     */
+    @Test
+    public void testNone() throws Exception {
+        File root = UnixFileCopyTest.createTempDir();
+        Cgroup cgroup = Cgroup.detect(root);
+        Assert.assertEquals(0, cgroup.getVersion());
+        Assert.assertEquals(-1, cgroup.read().getMemoryLimit());
+        root.delete();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static void write(File root, String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+    }
+}
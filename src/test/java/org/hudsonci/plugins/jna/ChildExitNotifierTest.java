@@ -0,0 +1,89 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit Test for the child exit notifier of JNA based Native Unix Support
+ * These tests only run on Linux
+ */
+public class ChildExitNotifierTest {
+
+    /**
+     * Test of watch method, of class ChildExitNotifier.
+     */
+    @Test
+    public void testWatch() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.CHILD_EXIT_NOTIFIER)) return;
+        ChildExitNotifier notifier = new ChildExitNotifier();
+        try {
+            List<Process> processes = new ArrayList<Process>();
+            List<Future<ExitStatus>> exits = new ArrayList<Future<ExitStatus>>();
+            final CountDownLatch listened = new CountDownLatch(10);
+            for (int i = 0; i < 10; i++) {
+                Process process = new ProcessBuilder("sh", "-c", "sleep 0.2; exit " + i).start();
+                processes.add(process);
+                exits.add(notifier.watch(process, new ExitListener() {
+
+                    public void exited(ExitStatus status) {
+                        listened.countDown();
+                    }
+                }));
+            }
+            for (int i = 0; i < 10; i++) {
+                ExitStatus status = exits.get(i).get(5, TimeUnit.SECONDS);
+                Assert.assertEquals(i, status.getExitCode());
+                Assert.assertEquals(0, status.getSignal());
+                // the status is left for the process itself
+                Assert.assertEquals(i, processes.get(i).waitFor());
+            }
+            Assert.assertTrue(listened.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, notifier.getWatchCount());
+        } finally {
+            notifier.close();
+        }
+    }
+
+    /**
+     * Test of watch method with a killed process, of class ChildExitNotifier.
+     */
+    @Test
+    public void testWatchKilled() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.CHILD_EXIT_NOTIFIER)) return;
+        ChildExitNotifier notifier = new ChildExitNotifier();
+        Process process = new ProcessBuilder("sleep", "30").start();
+        try {
+            Future<ExitStatus> exit = notifier.watch(process, null);
+            try {
+                exit.get(100, TimeUnit.MILLISECONDS);
+                Assert.fail("Process exited early");
+            } catch (TimeoutException expected) {
+            }
+            Assert.assertEquals(1, notifier.getWatchCount());
+            process.destroy();
+            ExitStatus status = exit.get(5, TimeUnit.SECONDS);
+            Assert.assertTrue(status.isKnown());
+            // as reported by Process if its reaper thread was faster
+            if (status.getSignal() == 0) {
+                Assert.assertEquals(128 + GNUCLibrary.SIGTERM, status.getExitCode());
+            } else {
+                Assert.assertEquals(GNUCLibrary.SIGTERM, status.getSignal());
+            }
+        } finally {
+            process.destroy();
+            notifier.close();
+        }
+    }
+}
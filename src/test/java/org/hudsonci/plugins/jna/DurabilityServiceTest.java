@@ -0,0 +1,73 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.eclipse.hudson.jna.NativeAccessException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit Test for DurabilityService
+ * These tests only run on Linux
+ */
+public class DurabilityServiceTest {
+
+    /**
+     * Test of sync method, flushing file by file.
+     */
+    @Test
+    public void testSync() throws Exception {
+        if (!new JnaNativeUnixSupport().hasSupportFor(UnixNativeFunction.DURABILITY_SERVICE)) return;
+        syncFiles(new DurabilityService(5000, 1000));
+    }
+
+    /**
+     * Test of sync method, flushing the file system.
+     */
+    @Test
+    public void testSyncfs() throws Exception {
+        if (!new JnaNativeUnixSupport().hasSupportFor(UnixNativeFunction.DURABILITY_SERVICE)) return;
+        syncFiles(new DurabilityService(5000, 2));
+    }
+
+    /**
+     * Test of sync method with a missing file.
+     */
+    @Test
+    public void testSyncMissing() throws Exception {
+        if (!new JnaNativeUnixSupport().hasSupportFor(UnixNativeFunction.DURABILITY_SERVICE)) return;
+        DurabilityService service = new DurabilityService(0, 2);
+        try {
+            service.sync(new File("/missing/file")).get();
+            Assert.fail("Synced a missing file");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof NativeAccessException);
+        }
+        service.close();
+    }
+
+    private void syncFiles(DurabilityService service) throws Exception {
+        File dir = UnixFileCopyTest.createTempDir();
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int i = 0; i < 10; i++) {
+            File file = new File(dir, "file" + i);
+            UnixFileCopyTest.write(file, 100);
+            futures.add(service.sync(file));
+        }
+        futures.add(service.sync(dir));
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        Assert.assertEquals(11, service.getLatencies().getCount());
+        Assert.assertEquals(11, service.getBatchSizes().getMax());
+        service.close();
+        new JnaNativeUnixSupport().deleteRecursively(dir);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit Test for the process handles of JNA based Native Unix Support
+ * These tests only run on Linux
+ */
+public class LinuxProcessHandleTest {
+
+    /**
+     * Test of signal and waitFor methods, of class LinuxProcessHandle.
+     */
+    @Test
+    public void testSignal() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.PROCESS_HANDLE)) return;
+        String cookie = Long.toString(System.nanoTime());
+        Process child = start(cookie, "sleep", "30");
+        try {
+            ProcessTableSnapshot table = instance.getProcessTable();
+            table.refresh();
+            int[] pids = table.findByEnvironment("TEST_COOKIE", cookie);
+            Assert.assertEquals(1, pids.length);
+            LinuxProcessHandle handle = instance.openProcessHandle(pids[0]);
+            try {
+                Assert.assertTrue(handle.isAlive());
+                Assert.assertFalse(handle.waitFor(50));
+                Assert.assertTrue(handle.signal(GNUCLibrary.SIGTERM));
+                Assert.assertTrue(handle.waitFor(5000));
+                Assert.assertFalse(handle.isAlive());
+                Assert.assertFalse(handle.signal(GNUCLibrary.SIGTERM));
+            } finally {
+                handle.close();
+            }
+        } finally {
+            child.destroy();
+        }
+    }
+
+    /**
+     * Test of killProcessTree method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testKillProcessTree() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.PROCESS_HANDLE)) return;
+        String cookie = Long.toString(System.nanoTime());
+        // SIGTERM is ignored by the shell and its children, only SIGKILL ends them
+        Process child = start(cookie, "sh", "-c", "trap '' TERM; sleep 30 & sleep 30 & wait");
+        try {
+            ProcessTableSnapshot table = instance.getProcessTable();
+            int shell = -1;
+            for (int i = 0; i < 100 && shell < 0; i++) {
+                Thread.sleep(20);
+                table.refresh();
+                int[] pids = table.findByEnvironment("TEST_COOKIE", cookie);
+                for (int pid : pids) {
+                    if (pids.length == 3 && table.getPpid(pid) == GNUCLibrary.LIBC.getpid()) {
+                        shell = pid;
+                    }
+                }
+            }
+            Assert.assertTrue(shell > 0);
+            long start = System.currentTimeMillis();
+            Assert.assertTrue(instance.killProcessTree(shell, 200));
+            Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+            child.waitFor();
+            table.refresh();
+            // orphans are left as zombies if init does not reap them
+            for (int pid : table.findByEnvironment("TEST_COOKIE", cookie)) {
+                Assert.assertFalse(LinuxProcessTable.isRunning(pid, table.getStartTime(pid)));
+            }
+        } finally {
+            child.destroy();
+        }
+    }
+
+    private static Process start(String cookie, String... command) throws Exception {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.environment().put("TEST_COOKIE", cookie);
+        return builder.start();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.util.List;
+import org.eclipse.hudson.jna.NativeProcess;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit Test for the /proc process list of JNA based Native Unix Support
+ * These tests only run on Linux
+ */
+public class LinuxProcessTest {
+
+    /**
+     * Test of getLinuxProcesses method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testGetLinuxProcesses() {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.PROCESS_LIST)) return;
+        int pid = Integer.parseInt(new File(instance.resolveSymlink(new File("/proc/self"))).getName());
+
+        List<NativeProcess> processes = instance.getLinuxProcesses();
+        LinuxProcess self = null;
+        for (NativeProcess process : processes) {
+            if (process.getPid() == pid) {
+                self = (LinuxProcess) process;
+            }
+        }
+        Assert.assertNotNull(self);
+        Assert.assertEquals(GNUCLibrary.LIBC.getppid(), self.getPpid());
+        Assert.assertTrue(self.getCommandLine().contains("java"));
+        Assert.assertTrue(self.getStartTime() > 0);
+        String path = System.getenv("PATH");
+        if (path != null) {
+            Assert.assertEquals(path, self.getEnvironmentVariables().get("PATH"));
+            Assert.assertTrue(self.hasEnvironmentVariable("PATH", path));
+            Assert.assertFalse(self.hasEnvironmentVariable("PATH", path + "x"));
+            Assert.assertEquals(path, self.getEnvironmentVariable("PATH"));
+            Assert.assertNull(self.getEnvironmentVariable("PAT"));
+        }
+        for (NativeProcess process : processes) {
+            if (process.getPid() == self.getPpid()) {
+                Assert.assertTrue(((LinuxProcess) process).getChildren().contains(self));
+            }
+        }
+    }
+
+    /**
+     * Test of parsePid method, of class LinuxProcessTable.
+     */
+    @Test
+    public void testParsePid() {
+        Assert.assertEquals(1234, LinuxProcessTable.parsePid("1234".getBytes(), 4));
+        Assert.assertEquals(-1, LinuxProcessTable.parsePid("self".getBytes(), 4));
+        Assert.assertEquals(-1, LinuxProcessTable.parsePid("12a".getBytes(), 3));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit Test for LogTailer
+ * These tests only run on Linux
+ */
+public class LogTailerTest {
+
+    /**
+     * Test of slice method, of class LogTailer.
+     */
+    @Test
+    public void testSlice() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.LOG_TAILER)) return;
+        File file = File.createTempFile("test", "log");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("Started\n".getBytes("US-ASCII"));
+        out.flush();
+
+        LogTailer tailer = instance.openLogTailer(file);
+        LogTailer other = instance.openLogTailer(file);
+        try {
+            Assert.assertSame(tailer, other);
+            Assert.assertEquals(8, tailer.getSize());
+            Assert.assertEquals("Started\n", toString(tailer.slice(0, 100)));
+            Assert.assertEquals(0, tailer.slice(8, 100).remaining());
+
+            out.write("Finished\n".getBytes("US-ASCII"));
+            out.close();
+            Assert.assertEquals(17, tailer.awaitGrowth(8, 10000));
+            Assert.assertEquals("Fin", toString(other.slice(8, 3)));
+            Assert.assertEquals("Finished\n", toString(tailer.slice(8, 100)));
+        } finally {
+            other.close();
+            tailer.close();
+        }
+    }
+
+    private static String toString(ByteBuffer buffer) throws Exception {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, "US-ASCII");
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit Test for NativeWatchService
+ * These tests only run on Linux
+ */
+public class NativeWatchServiceTest {
+
+    /**
+     * Test of register method, of class NativeWatchService.
+     */
+    @Test
+    public void testRecursive() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.WATCH_SERVICE)) return;
+        File dir = UnixFileCopyTest.createTempDir();
+        new File(dir, "existing").mkdir();
+        NativeWatchService service = instance.newWatchService(50);
+        RecordingListener listener = new RecordingListener();
+        try {
+            service.register(dir, true, listener);
+            Assert.assertEquals(2, service.getWatchCount());
+
+            File file = new File(dir, "existing/file");
+            UnixFileCopyTest.write(file, 10);
+            UnixFileCopyTest.write(file, 20);
+            int kinds = listener.await(file);
+            Assert.assertEquals(WatchListener.CREATED | WatchListener.MODIFIED, kinds);
+
+            // a new subdirectory is watched, and what was created in it before is reported
+            File subDir = new File(dir, "new");
+            subDir.mkdir();
+            File early = new File(subDir, "early");
+            UnixFileCopyTest.write(early, 10);
+            Assert.assertTrue((listener.await(early) & WatchListener.CREATED) != 0);
+            File late = new File(subDir, "late");
+            UnixFileCopyTest.write(late, 10);
+            Assert.assertTrue((listener.await(late) & WatchListener.CREATED) != 0);
+            Assert.assertEquals(3, service.getWatchCount());
+
+            instance.deleteRecursively(subDir);
+            // the creation of the directory may still be recorded
+            Assert.assertTrue((listener.await(subDir, WatchListener.DELETED) & WatchListener.DELETED) != 0);
+        } finally {
+            service.close();
+            instance.deleteRecursively(dir);
+        }
+    }
+
+    private static class RecordingListener implements WatchListener {
+
+        private final Map<File, Integer> changes = new HashMap<File, Integer>();
+
+        public synchronized void changed(File file, int kinds) {
+            Integer previous = changes.get(file);
+            changes.put(file, previous == null ? kinds : previous | kinds);
+            notifyAll();
+        }
+
+        synchronized int await(File file) throws InterruptedException {
+            return await(file, 0);
+        }
+
+        /**
+         * Waits for changes of the file, including the given kinds.
+         */
+        synchronized int await(File file, int kinds) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10000;
+            while ((!changes.containsKey(file) || (changes.get(file) & kinds) != kinds)
+                    && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            // let the rest of the window arrive
+            wait(200);
+            Integer recorded = changes.remove(file);
+            return recorded == null ? 0 : recorded;
+        }
+    }
+}
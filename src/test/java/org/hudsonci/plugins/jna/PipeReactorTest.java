@@ -0,0 +1,138 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.hudsonci.plugins.jna.GNUCLibrary.*;
+
+/**
+ * Unit Test for PipeReactor
+ * These tests only run on Linux
+ */
+public class PipeReactorTest {
+
+    /**
+     * Test of register method, of class PipeReactor.
+     */
+    @Test
+    public void testRegister() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.PIPE_REACTOR)) return;
+        PipeReactor reactor = new PipeReactor(2);
+        try {
+            int[] first = new int[2];
+            int[] second = new int[2];
+            Assert.assertEquals(0, LIBC.pipe2(first, O_CLOEXEC));
+            Assert.assertEquals(0, LIBC.pipe2(second, O_CLOEXEC));
+            RecordingSink firstSink = new RecordingSink();
+            RecordingSink secondSink = new RecordingSink();
+            reactor.register(first[0], firstSink);
+            reactor.register(second[0], secondSink);
+            Assert.assertEquals(2, reactor.getPipeCount());
+
+            byte[] data = new byte[300000];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) i;
+            }
+            write(first[1], data);
+            write(second[1], "hello".getBytes("US-ASCII"));
+            LIBC.close(first[1]);
+            LIBC.close(second[1]);
+
+            Assert.assertEquals(data.length, firstSink.await().length);
+            Assert.assertEquals("hello", new String(secondSink.await(), "US-ASCII"));
+            Assert.assertEquals(0, reactor.getPipeCount());
+        } finally {
+            reactor.close();
+        }
+    }
+
+    /**
+     * Test of start method, of class PipeReactor.
+     */
+    @Test
+    public void testStart() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.PIPE_REACTOR)) return;
+        PipeReactor reactor = new PipeReactor(2);
+        try {
+            ProcessBuilder builder = new ProcessBuilder("sh", "-c", "echo hello; echo world >&2; exit 3");
+            RecordingSink out = new RecordingSink();
+            RecordingSink err = new RecordingSink();
+            Process process = reactor.start(builder, out, err);
+            Assert.assertEquals(3, process.waitFor());
+            Assert.assertEquals(3, process.exitValue());
+            Assert.assertEquals("hello\n", new String(out.await(), "US-ASCII"));
+            Assert.assertEquals("world\n", new String(err.await(), "US-ASCII"));
+            Assert.assertEquals(-1, process.getInputStream().read());
+            Assert.assertEquals(-1, process.getErrorStream().read());
+            Assert.assertEquals(0, reactor.getPipeCount());
+        } finally {
+            reactor.close();
+        }
+    }
+
+    /**
+     * Test of start method, of class PipeReactor.
+     */
+    @Test
+    public void testStartMergingErrors() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.PIPE_REACTOR)) return;
+        PipeReactor reactor = new PipeReactor(2);
+        try {
+            ProcessBuilder builder = new ProcessBuilder("sh", "-c", "echo hello; echo world >&2");
+            builder.redirectErrorStream(true);
+            RecordingSink out = new RecordingSink();
+            Process process = reactor.start(builder, out, null);
+            Assert.assertEquals(0, process.waitFor());
+            Assert.assertEquals("hello\nworld\n", new String(out.await(), "US-ASCII"));
+            Assert.assertEquals(0, reactor.getPipeCount());
+        } finally {
+            reactor.close();
+        }
+    }
+
+    private static void write(int fd, byte[] data) {
+        Memory memory = new Memory(data.length);
+        memory.write(0, data, 0, data.length);
+        for (int written = 0; written < data.length;) {
+            written += LIBC.write(fd, memory.share(written), new NativeLong(data.length - written)).intValue();
+        }
+    }
+
+    private static class RecordingSink implements PipeSink {
+
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private boolean closed;
+
+        public synchronized void data(ByteBuffer data) {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            received.write(bytes, 0, bytes.length);
+        }
+
+        public synchronized void closed(String error) {
+            Assert.assertNull(error);
+            closed = true;
+            notifyAll();
+        }
+
+        synchronized byte[] await() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!closed && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            Assert.assertTrue(closed);
+            return received.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit Test for the process table snapshot of JNA based Native Unix Support
+ * These tests only run on Linux
+ */
+public class ProcessTableSnapshotTest {
+
+    /**
+     * Test of refresh method, of class ProcessTableSnapshot.
+     */
+    @Test
+    public void testRefresh() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.PROCESS_LIST)) return;
+        int self = GNUCLibrary.LIBC.getpid();
+        ProcessTableSnapshot snapshot = new ProcessTableSnapshot(JnaNativeUnixSupport.getTreeExecutor());
+        snapshot.refresh();
+        Assert.assertTrue(snapshot.contains(self));
+        Assert.assertEquals(snapshot.size(), snapshot.getAdded().size());
+        LinuxProcess process = snapshot.getProcess(self);
+
+        Process child = new ProcessBuilder("sleep", "30").start();
+        try {
+            snapshot.refresh();
+            Assert.assertSame(process, snapshot.getProcess(self));
+            int sleep = -1;
+            for (LinuxProcess added : snapshot.getAdded()) {
+                if (added.getCommandLine().equals("sleep 30")) {
+                    sleep = added.getPid();
+                }
+            }
+            Assert.assertTrue(Arrays.binarySearch(snapshot.getChildren(self), sleep) >= 0);
+            Assert.assertEquals(self, snapshot.getPpid(sleep));
+            Assert.assertTrue(Arrays.asList(toIntegers(snapshot.getDescendants(snapshot.getPpid(self)))).contains(sleep));
+            Assert.assertTrue(snapshot.getProcess(self).getChildren().contains(snapshot.getProcess(sleep)));
+
+            child.destroy();
+            child.waitFor();
+            snapshot.refresh();
+            Assert.assertFalse(snapshot.contains(sleep));
+            boolean removed = false;
+            for (LinuxProcess gone : snapshot.getRemoved()) {
+                removed |= gone.getPid() == sleep;
+            }
+            Assert.assertTrue(removed);
+        } finally {
+            child.destroy();
+        }
+    }
+
+    /**
+     * Test of findByEnvironment and getEnvironmentIndex methods, of class ProcessTableSnapshot.
+     */
+    @Test
+    public void testFindByEnvironment() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.PROCESS_LIST)) return;
+        String cookie = Long.toString(System.nanoTime());
+        ProcessTableSnapshot snapshot = new ProcessTableSnapshot(JnaNativeUnixSupport.getTreeExecutor());
+        snapshot.refresh();
+        Assert.assertEquals(0, snapshot.findByEnvironment("TEST_COOKIE", cookie).length);
+
+        ProcessBuilder builder = new ProcessBuilder("sleep", "30");
+        builder.environment().put("TEST_COOKIE", cookie);
+        Process child = builder.start();
+        try {
+            snapshot.refresh();
+            int[] found = snapshot.findByEnvironment("TEST_COOKIE", cookie);
+            Assert.assertEquals(1, found.length);
+            Assert.assertEquals(cookie, snapshot.getProcess(found[0]).getEnvironmentVariable("TEST_COOKIE"));
+            Assert.assertEquals(0, snapshot.findByEnvironment("TEST_COOKIE", cookie + "0").length);
+
+            EnvironmentIndex index = snapshot.getEnvironmentIndex("TEST_COOKIE");
+            Assert.assertTrue(Arrays.equals(found, index.getPids(cookie)));
+            Process other = builder.start();
+            try {
+                snapshot.refresh();
+                Assert.assertEquals(2, index.getPids(cookie).length);
+            } finally {
+                other.destroy();
+                other.waitFor();
+            }
+            snapshot.refresh();
+            Assert.assertTrue(Arrays.equals(found, snapshot.findByEnvironment("TEST_COOKIE", cookie)));
+
+            child.destroy();
+            child.waitFor();
+            snapshot.refresh();
+            Assert.assertEquals(0, index.getPids(cookie).length);
+            Assert.assertEquals(0, index.size());
+        } finally {
+            child.destroy();
+        }
+    }
+
+    /**
+     * Test of refresh method with a process that runs another program, of class ProcessTableSnapshot.
+     */
+    @Test
+    public void testRefreshAfterExec() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.PROCESS_LIST)) return;
+        String cookie = Long.toString(System.nanoTime());
+        ProcessTableSnapshot snapshot = new ProcessTableSnapshot(JnaNativeUnixSupport.getTreeExecutor());
+        EnvironmentIndex index = snapshot.getEnvironmentIndex("TEST_EXEC");
+        // the shell waits for a line, then runs env, which runs sleep in the same process
+        ProcessBuilder builder = new ProcessBuilder("sh", "-c", "read line; exec env TEST_EXEC=" + cookie + " sleep 30");
+        builder.environment().put("TEST_COOKIE", cookie);
+        Process child = builder.start();
+        try {
+            int[] found = new int[0];
+            for (int i = 0; i < 100 && found.length == 0; i++) {
+                Thread.sleep(20);
+                snapshot.refresh();
+                found = snapshot.findByEnvironment("TEST_COOKIE", cookie);
+            }
+            Assert.assertEquals(1, found.length);
+            int pid = found[0];
+            LinuxProcess shell = snapshot.getProcess(pid);
+            Assert.assertEquals("sh", shell.getName());
+            Assert.assertEquals(0, index.getPids(cookie).length);
+
+            child.getOutputStream().write('\n');
+            child.getOutputStream().flush();
+            boolean removed = false;
+            for (int i = 0; i < 100 && index.getPids(cookie).length == 0; i++) {
+                Thread.sleep(20);
+                snapshot.refresh();
+                for (LinuxProcess gone : snapshot.getRemoved()) {
+                    removed |= gone == shell;
+                }
+            }
+            Assert.assertTrue(Arrays.equals(new int[]{pid}, index.getPids(cookie)));
+            Assert.assertTrue(removed);
+            LinuxProcess sleep = snapshot.getProcess(pid);
+            Assert.assertTrue(snapshot.getAdded().contains(sleep));
+            Assert.assertEquals("sleep", sleep.getName());
+            Assert.assertEquals(shell.getStartTime(), sleep.getStartTime());
+            Assert.assertEquals(cookie, sleep.getEnvironmentVariable("TEST_EXEC"));
+        } finally {
+            child.destroy();
+        }
+    }
+
+    /**
+     * Test of refresh method with a process that runs another program of the same name, of
+     * class ProcessTableSnapshot.
+     */
+    @Test
+    public void testRefreshAfterExecOfSameName() throws Exception {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.PROCESS_LIST)) return;
+        File dir = UnixFileCopyTest.createTempDir();
+        // sleep, under the name of the shell that runs it
+        File sleepAsSh = new File(dir, "sh");
+        instance.copyFile(new File("/bin/sleep"), sleepAsSh, new CopyOptions());
+        sleepAsSh.setExecutable(true);
+        String cookie = Long.toString(System.nanoTime());
+        ProcessTableSnapshot snapshot = new ProcessTableSnapshot(JnaNativeUnixSupport.getTreeExecutor());
+        ProcessBuilder builder = new ProcessBuilder("sh", "-c", "read line; export TEST_EXEC=" + cookie + "; exec "
+                + sleepAsSh + " 30");
+        builder.environment().put("TEST_COOKIE", cookie);
+        Process child = builder.start();
+        try {
+            int[] found = new int[0];
+            for (int i = 0; i < 100 && found.length == 0; i++) {
+                Thread.sleep(20);
+                snapshot.refresh();
+                found = snapshot.findByEnvironment("TEST_COOKIE", cookie);
+            }
+            Assert.assertEquals(1, found.length);
+            int pid = found[0];
+            LinuxProcess shell = snapshot.getProcess(pid);
+            Assert.assertEquals("sh", shell.getName());
+
+            child.getOutputStream().write('\n');
+            child.getOutputStream().flush();
+            boolean removed = false;
+            for (int i = 0; i < 100 && snapshot.getProcess(pid).getEnvironmentVariable("TEST_EXEC") == null; i++) {
+                Thread.sleep(20);
+                snapshot.refresh();
+                for (LinuxProcess gone : snapshot.getRemoved()) {
+                    removed |= gone == shell;
+                }
+            }
+            Assert.assertTrue(removed);
+            Assert.assertEquals("sh", snapshot.getProcess(pid).getName());
+            Assert.assertEquals(cookie, snapshot.getProcess(pid).getEnvironmentVariable("TEST_EXEC"));
+            Assert.assertEquals(sleepAsSh + " 30", snapshot.getProcess(pid).getCommandLine());
+        } finally {
+            child.destroy();
+            child.waitFor();
+            sleepAsSh.delete();
+            dir.delete();
+        }
+    }
+
+    private static Integer[] toIntegers(int[] values) {
+        Integer[] integers = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            integers[i] = values[i];
+        }
+        return integers;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import com.sun.jna.Platform;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit Test for the inotify based SymlinkCache
+ * These tests only run on Linux
+ */
+public class SymlinkCacheTest {
+
+    /**
+     * Test that a repeated lookup is served from the cache.
+     */
+    @Test
+    public void testHit() throws IOException {
+        if (!Platform.isLinux()) return;
+        File file = File.createTempFile("test", "test");
+        file.deleteOnExit();
+        File link = new File(file.getPath() + ".link");
+        link.deleteOnExit();
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        instance.createSymlink(link.getAbsolutePath(), file);
+
+        SymlinkCache cache = new SymlinkCache(instance, 10);
+        try {
+            Assert.assertEquals(file.getAbsolutePath(), cache.resolve(link));
+            Assert.assertEquals(file.getAbsolutePath(), cache.resolve(link));
+            Assert.assertEquals(1, cache.getMisses());
+            Assert.assertEquals(1, cache.getHits());
+            Assert.assertNull(cache.resolve(file));
+            Assert.assertNull(cache.resolve(file));
+            Assert.assertEquals(2, cache.getHits());
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * Test that replacing a link evicts it from the cache.
+     */
+    @Test
+    public void testInvalidation() throws Exception {
+        if (!Platform.isLinux()) return;
+        File file = File.createTempFile("test", "test");
+        file.deleteOnExit();
+        File other = File.createTempFile("test", "test");
+        other.deleteOnExit();
+        File link = new File(file.getPath() + ".link");
+        link.deleteOnExit();
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        instance.createSymlink(link.getAbsolutePath(), file);
+
+        SymlinkCache cache = new SymlinkCache(instance, 10);
+        try {
+            Assert.assertEquals(file.getAbsolutePath(), cache.resolve(link));
+            link.delete();
+            instance.createSymlink(link.getAbsolutePath(), other);
+            // events are delivered asynchronously
+            for (int i = 0; i < 50 && cache.getInvalidations() == 0; i++) {
+                Thread.sleep(100);
+            }
+            Assert.assertEquals(other.getAbsolutePath(), cache.resolve(link));
+            Assert.assertEquals(2, cache.getMisses());
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * Test that replacing a link evicts it under every name of its directory.
+     */
+    @Test
+    public void testInvalidationThroughAlias() throws Exception {
+        if (!Platform.isLinux()) return;
+        File dir = File.createTempFile("test", "dir");
+        dir.delete();
+        dir.mkdir();
+        dir.deleteOnExit();
+        File alias = new File(dir.getPath() + ".alias");
+        alias.deleteOnExit();
+        File file = File.createTempFile("test", "test");
+        file.deleteOnExit();
+        File other = File.createTempFile("test", "test");
+        other.deleteOnExit();
+        File link = new File(dir, "link");
+        link.deleteOnExit();
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        instance.createSymlink(alias.getAbsolutePath(), dir);
+        instance.createSymlink(link.getAbsolutePath(), file);
+
+        SymlinkCache cache = new SymlinkCache(instance, 10);
+        try {
+            File aliasLink = new File(alias, "link");
+            Assert.assertEquals(file.getAbsolutePath(), cache.resolve(link));
+            Assert.assertEquals(file.getAbsolutePath(), cache.resolve(aliasLink));
+            link.delete();
+            instance.createSymlink(link.getAbsolutePath(), other);
+            // events are delivered asynchronously
+            for (int i = 0; i < 50 && cache.getInvalidations() < 2; i++) {
+                Thread.sleep(100);
+            }
+            Assert.assertEquals(other.getAbsolutePath(), cache.resolve(aliasLink));
+            Assert.assertEquals(other.getAbsolutePath(), cache.resolve(link));
+        } finally {
+            cache.close();
+            link.delete();
+            alias.delete();
+        }
+    }
+
+    /**
+     * Test that the cache does not grow beyond its capacity.
+     */
+    @Test
+    public void testCapacity() throws IOException {
+        if (!Platform.isLinux()) return;
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        SymlinkCache cache = new SymlinkCache(instance, 2);
+        try {
+            for (int i = 0; i < 5; i++) {
+                File file = File.createTempFile("test", "test");
+                file.deleteOnExit();
+                cache.resolve(file);
+            }
+            Assert.assertEquals(2, cache.size());
+        } finally {
+            cache.close();
+        }
+    }
+}
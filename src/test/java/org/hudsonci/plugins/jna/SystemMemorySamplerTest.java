@@ -0,0 +1,104 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import org.eclipse.hudson.jna.NativeAccessException;
+import org.eclipse.hudson.jna.NativeSystemMemory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.MemoryUsage;
+
+/**
+ * Unit Test for SystemMemorySampler
+ */
+public class SystemMemorySamplerTest {
+
+    /**
+     * Test of the history of SystemMemorySampler.
+     */
+    @Test
+    public void testHistory() throws Exception {
+        FakeSampler sampler = new FakeSampler(3);
+        for (int i = 1; i <= 4; i++) {
+            sampler.available = i * 100;
+            Assert.assertEquals(i * 100, sampler.sampleNow().getAvailablePhysicalMemory());
+        }
+        Assert.assertEquals(3, sampler.getSampleCount());
+        Assert.assertEquals(400, sampler.getLatest().getAvailablePhysicalMemory());
+
+        // the first sample was overwritten
+        NativeSystemMemory min = sampler.getMinimum(60000);
+        Assert.assertEquals(200, min.getAvailablePhysicalMemory());
+        Assert.assertEquals(300, sampler.getAverage(60000).getAvailablePhysicalMemory());
+        Assert.assertEquals(400, sampler.getMaximum(60000).getAvailablePhysicalMemory());
+        Assert.assertEquals(1000, sampler.getMaximum(60000).getTotalPhysicalMemory());
+
+        Thread.sleep(20);
+        Assert.assertNull(sampler.getAverage(5));
+    }
+
+    /**
+     * Test that getLatest of SystemMemorySampler does not hand out a stale sample.
+     */
+    @Test
+    public void testStale() throws Exception {
+        FakeSampler sampler = new FakeSampler(20, 3);
+        try {
+            sampler.available = 100;
+            for (int i = 0; i < 100 && sampler.getSampleCount() == 0; i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(100, sampler.getLatest().getAvailablePhysicalMemory());
+            sampler.failing = true;
+            Thread.sleep(200);
+            try {
+                sampler.getLatest();
+                Assert.fail("stale sample returned");
+            } catch (NativeAccessException e) {
+                // expected
+            }
+            sampler.available = 200;
+            sampler.failing = false;
+            Assert.assertEquals(200, sampler.getLatest().getAvailablePhysicalMemory());
+        } finally {
+            sampler.close();
+        }
+    }
+
+    /**
+     * Test that SystemMemorySampler rejects an empty history.
+     */
+    @Test
+    public void testNoHistory() {
+        try {
+            new FakeSampler(0);
+            Assert.fail("empty history accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static class FakeSampler extends SystemMemorySampler {
+
+        volatile long available;
+        volatile boolean failing;
+
+        FakeSampler(int capacity) {
+            this(0, capacity);
+        }
+
+        FakeSampler(long periodMillis, int capacity) {
+            super(periodMillis, capacity, null);
+        }
+
+        @Override
+        MemoryUsage readMemoryUsage() {
+            if (failing) {
+                throw new IllegalStateException("failing");
+            }
+            return new MemoryUsage(1000, available, 0, 0);
+        }
+    }
+}
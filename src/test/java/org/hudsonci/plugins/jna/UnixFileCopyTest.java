@@ -0,0 +1,316 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit Test for the native file copy and read of JNA based Native Unix Support
+ * These tests only run on Linux
+ */
+public class UnixFileCopyTest {
+
+    /**
+     * Test of copyFile method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testCopyFile() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.COPY_FILE)) return;
+        File from = File.createTempFile("test", "test");
+        from.deleteOnExit();
+        File to = File.createTempFile("test", "test");
+        to.deleteOnExit();
+        byte[] data = write(from, 300000);
+        instance.chmod(from, 0640);
+
+        long copied = instance.copyFile(from, to, new CopyOptions());
+        Assert.assertEquals(data.length, copied);
+        Assert.assertTrue(Arrays.equals(data, read(to)));
+        Assert.assertEquals(0640, instance.mode(to) & 0777);
+    }
+
+    /**
+     * Test of copyFile method without overwrite, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testCopyFileNoOverwrite() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.COPY_FILE)) return;
+        File from = File.createTempFile("test", "test");
+        from.deleteOnExit();
+        File to = File.createTempFile("test", "test");
+        to.deleteOnExit();
+        CopyOptions options = new CopyOptions();
+        options.setOverwrite(false);
+        try {
+            instance.copyFile(from, to, options);
+            Assert.fail("Copied over an existing file");
+        } catch (org.eclipse.hudson.jna.NativeAccessException expected) {
+            System.out.println(expected.getMessage());
+        }
+    }
+
+    /**
+     * Test of copyFile method onto the source or links to it, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testCopyFileOntoSource() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.COPY_FILE)) return;
+        File dir = createTempDir();
+        File from = new File(dir, "file");
+        byte[] data = write(from, 1000);
+        try {
+            instance.copyFile(from, from, new CopyOptions());
+            Assert.fail("Copied a file onto itself");
+        } catch (org.eclipse.hudson.jna.NativeAccessException expected) {
+        }
+        Assert.assertTrue(Arrays.equals(data, read(from)));
+
+        // a hard link to the source is replaced by a copy
+        File link = new File(dir, "link");
+        Assert.assertEquals(0, GNUCLibrary.LIBC.linkat(GNUCLibrary.AT_FDCWD, from.getPath(), GNUCLibrary.AT_FDCWD, link.getPath(), 0));
+        Assert.assertEquals(data.length, instance.copyFile(from, link, new CopyOptions()));
+        Assert.assertTrue(Arrays.equals(data, read(from)));
+        Assert.assertEquals(1, instance.stat(from).getLinkCount());
+
+        // a symlink is replaced, not written through
+        File other = new File(dir, "other");
+        write(other, 10);
+        File symlink = new File(dir, "symlink");
+        instance.createSymlink(symlink.getAbsolutePath(), other);
+        instance.copyFile(from, symlink, new CopyOptions());
+        Assert.assertNull(instance.resolveSymlink(symlink));
+        Assert.assertTrue(Arrays.equals(data, read(symlink)));
+        Assert.assertEquals(10, other.length());
+        instance.deleteRecursively(dir);
+    }
+
+    /**
+     * Test of copyTree method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testCopyTree() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.COPY_FILE)) return;
+        File from = createTempDir();
+        File subDir = new File(from, "sub");
+        subDir.mkdir();
+        byte[] data = write(new File(subDir, "file"), 1000);
+        instance.createSymlink(new File(from, "link").getAbsolutePath(), new File("sub/file"));
+        instance.chmod(subDir, 0555);
+        File to = new File(createTempDir(), "copy");
+
+        CopyResult result = instance.copyTree(from, to, new CopyOptions());
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(1, result.getFilesCopied());
+        Assert.assertEquals(data.length, result.getBytesCopied());
+        Assert.assertTrue(Arrays.equals(data, read(new File(to, "sub/file"))));
+        Assert.assertEquals(new File("sub/file").getAbsolutePath(), instance.resolveSymlink(new File(to, "link")));
+        Assert.assertEquals(0555, instance.mode(new File(to, "sub")) & 0777);
+        instance.deleteRecursively(from);
+        instance.deleteRecursively(to);
+    }
+
+    /**
+     * Test of copyTree method over symlinked directories and into the source, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testCopyTreeStaysInside() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.COPY_FILE)) return;
+        File from = createTempDir();
+        new File(from, "sub").mkdir();
+        write(new File(from, "sub/file"), 100);
+        File outside = createTempDir();
+        File to = createTempDir();
+        instance.createSymlink(new File(to, "sub").getAbsolutePath(), outside);
+
+        CopyResult result = instance.copyTree(from, to, new CopyOptions());
+        Assert.assertFalse(result.isSuccess());
+        Assert.assertEquals(0, outside.list().length);
+
+        try {
+            instance.copyTree(from, new File(from, "sub/copy"), new CopyOptions());
+            Assert.fail("Copied a tree into itself");
+        } catch (org.eclipse.hudson.jna.NativeAccessException expected) {
+        }
+        Assert.assertFalse(new File(from, "sub/copy").exists());
+        instance.deleteRecursively(from);
+        instance.deleteRecursively(outside);
+        instance.deleteRecursively(to);
+    }
+
+    /**
+     * Test of linkTree method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testLinkTree() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.LINK_TREE)) return;
+        File from = createTempDir();
+        File subDir = new File(from, "sub");
+        subDir.mkdir();
+        byte[] data = write(new File(subDir, "file"), 1000);
+        write(new File(subDir, "mutable.log"), 10);
+        File to = new File(createTempDir(), "clone");
+
+        CopyResult result = instance.linkTree(from, to, new FileFilter() {
+
+            public boolean accept(File file) {
+                return file.getName().endsWith(".log");
+            }
+        }, new CopyOptions());
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(1, result.getFilesLinked());
+        Assert.assertEquals(1, result.getFilesCopied());
+        Assert.assertTrue(Arrays.equals(data, read(new File(to, "sub/file"))));
+        Assert.assertEquals(2, instance.stat(new File(to, "sub/file")).getLinkCount());
+        Assert.assertEquals(1, instance.stat(new File(to, "sub/mutable.log")).getLinkCount());
+        instance.deleteRecursively(from);
+        instance.deleteRecursively(to);
+    }
+
+    /**
+     * Test of linkTree method over an existing clone, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testLinkTreeAgain() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.LINK_TREE)) return;
+        File from = createTempDir();
+        byte[] config = write(new File(from, "config.xml"), 1000);
+        byte[] data = write(new File(from, "file"), 100);
+        File to = new File(createTempDir(), "clone");
+        FileFilter mutableFiles = new FileFilter() {
+
+            public boolean accept(File file) {
+                return file.getName().equals("config.xml");
+            }
+        };
+
+        // every file is a link to the source, also the one copied from now on
+        Assert.assertTrue(instance.linkTree(from, to).isSuccess());
+        for (int i = 0; i < 2; i++) {
+            CopyResult result = instance.linkTree(from, to, mutableFiles, new CopyOptions());
+            Assert.assertTrue(result.isSuccess());
+            Assert.assertEquals(1, result.getFilesCopied());
+            Assert.assertEquals(1, result.getFilesLinked());
+            Assert.assertTrue(Arrays.equals(config, read(new File(from, "config.xml"))));
+            Assert.assertTrue(Arrays.equals(config, read(new File(to, "config.xml"))));
+            Assert.assertEquals(1, instance.stat(new File(to, "config.xml")).getLinkCount());
+            Assert.assertTrue(Arrays.equals(data, read(new File(to, "file"))));
+            Assert.assertEquals(2, instance.stat(new File(to, "file")).getLinkCount());
+        }
+        instance.deleteRecursively(from);
+        instance.deleteRecursively(to);
+    }
+
+    /**
+     * Test of reflinkTree method, of class JnaNativeUnixSupport.
+     * Files are reflinked or copied depending on the file system of the temp directory.
+     */
+    @Test
+    public void testReflinkTree() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.REFLINK_TREE)) return;
+        File from = createTempDir();
+        byte[] data = write(new File(from, "file"), 100000);
+        write(new File(from, "other"), 10);
+        File to = new File(createTempDir(), "clone");
+
+        CopyResult result = instance.reflinkTree(from, to, false, new CopyOptions());
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(0, result.getFilesLinked());
+        Assert.assertEquals(2, result.getFilesReflinked() + result.getFilesCopied());
+        Assert.assertTrue(Arrays.equals(data, read(new File(to, "file"))));
+        Assert.assertEquals(1, instance.stat(new File(to, "file")).getLinkCount());
+        instance.deleteRecursively(to);
+
+        result = instance.reflinkTree(from, to, true, new CopyOptions());
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(0, result.getFilesCopied());
+        Assert.assertEquals(2, result.getFilesReflinked() + result.getFilesLinked());
+        Assert.assertTrue(Arrays.equals(data, read(new File(to, "file"))));
+        instance.deleteRecursively(from);
+        instance.deleteRecursively(to);
+    }
+
+    /**
+     * Test of openSequential and prefetch methods, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testOpenSequential() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.SEQUENTIAL_READ)) return;
+        File file = File.createTempFile("test", "test");
+        file.deleteOnExit();
+        byte[] data = write(file, 300000);
+        instance.prefetch(file);
+
+        SequentialFileInputStream in = instance.openSequential(file, true);
+        try {
+            Assert.assertEquals(data[0] & 0xff, in.read());
+            Assert.assertEquals(1000, in.skip(1000));
+            byte[] read = new byte[data.length];
+            int n = 1001;
+            int r;
+            while ((r = in.read(read, n, read.length - n)) > 0) {
+                n += r;
+            }
+            Assert.assertEquals(data.length, n);
+            Assert.assertEquals(-1, in.read());
+            for (int i = 1001; i < data.length; i++) {
+                Assert.assertEquals(data[i], read[i]);
+            }
+            Assert.assertEquals(0, in.skip(10));
+        } finally {
+            in.close();
+        }
+    }
+
+    static File createTempDir() throws IOException {
+        File dir = File.createTempFile("test", "dir");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+
+    static byte[] write(File file, int size) throws IOException {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return data;
+    }
+
+    static byte[] read(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int n = 0;
+            while (n < data.length) {
+                n += in.read(data, n, data.length - n);
+            }
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+}
@@ -6,6 +6,9 @@ package org.hudsonci.plugins.jna;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Assert;
 import org.junit.Test;
@@ -142,4 +145,217 @@ public class UnixFileModeTest {
         String result = instance.resolveSymlink(linkFile);
         Assert.assertEquals(symlinkToFile.getAbsolutePath(), result);
     }
+
+    /**
+     * Test of resolveSymlinks method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testResolveSymlinks() throws IOException {
+        if (Functions.isWindows()) return;
+        File dir = createTempDir();
+        File file = new File(dir, "file");
+        file.createNewFile();
+        File link1 = new File(dir, "link1");
+        File link2 = new File(dir, "link2");
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        instance.createSymlink(link1.getAbsolutePath(), file);
+        instance.createSymlink(link2.getAbsolutePath(), link1);
+        Map<File, String> result = instance.resolveSymlinks(Arrays.asList(link1, link2, file));
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals(file.getAbsolutePath(), result.get(link1));
+        Assert.assertEquals(link1.getAbsolutePath(), result.get(link2));
+        Assert.assertNull(result.get(file));
+    }
+
+    /**
+     * Test of chmodAll method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testChmodAll() throws IOException {
+        if (Functions.isWindows()) return;
+        File root = createTempDir();
+        File subDir = new File(root, "sub");
+        subDir.mkdir();
+        File file = new File(subDir, "file");
+        file.createNewFile();
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        List<FileOperationError> errors = instance.chmodAll(root, new ModeFunction() {
+
+            public int getMode(File file, boolean directory) {
+                return directory ? 0750 : 0640;
+            }
+        });
+        Assert.assertTrue(errors.isEmpty());
+        Assert.assertEquals(0750, instance.mode(subDir) & 0777);
+        Assert.assertEquals(0640, instance.mode(file) & 0777);
+    }
+
+    /**
+     * Test of chmodAll method with a wide tree, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testChmodAllWideTree() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.DIRECTORY_READER)) return;
+        File root = createTempDir();
+        for (int i = 0; i < 1000; i++) {
+            new File(root, "dir" + i + "/sub").mkdirs();
+        }
+        int descriptors = new File("/proc/self/fd").list().length;
+        List<FileOperationError> errors = instance.chmodAll(root, new ModeFunction() {
+
+            public int getMode(File file, boolean directory) {
+                return 0750;
+            }
+        });
+        Assert.assertTrue(errors.isEmpty());
+        Assert.assertEquals(0750, instance.mode(new File(root, "dir999/sub")) & 0777);
+        Assert.assertEquals(descriptors, new File("/proc/self/fd").list().length);
+    }
+
+    /**
+     * Test of chownTree method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testChownTree() throws IOException {
+        if (Functions.isWindows()) return;
+        File root = createTempDir();
+        new File(root, "file").createNewFile();
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        List<FileOperationError> errors = instance.chownTree(root, instance.getEuid(), instance.getEgid());
+        Assert.assertTrue(errors.isEmpty());
+    }
+
+    /**
+     * Test of makeTreeWritable method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testMakeTreeWritable() throws IOException {
+        if (Functions.isWindows()) return;
+        File root = createTempDir();
+        File subDir = new File(root, "sub");
+        subDir.mkdir();
+        File file = new File(subDir, "file");
+        file.createNewFile();
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        instance.chmod(file, 0444);
+        instance.chmod(subDir, 0555);
+        List<FileOperationError> errors = instance.makeTreeWritable(root);
+        Assert.assertTrue(errors.isEmpty());
+        Assert.assertEquals(0755, instance.mode(subDir) & 0777);
+        Assert.assertEquals(0644, instance.mode(file) & 0777);
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(subDir.delete());
+    }
+
+    /**
+     * Test of deleteRecursively method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testDeleteRecursively() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.DELETE_RECURSIVELY)) return;
+        File outside = File.createTempFile("test", "test");
+        outside.deleteOnExit();
+        File root = createTempDir();
+        File subDir = new File(root, "sub");
+        subDir.mkdir();
+        File file = new File(subDir, "file");
+        file.createNewFile();
+        instance.createSymlink(new File(root, "link").getAbsolutePath(), outside);
+        instance.chmod(subDir, 0555);
+
+        DeleteResult result = instance.deleteRecursively(root);
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(4, result.getInodesFreed());
+        Assert.assertFalse(root.exists());
+        Assert.assertTrue(outside.exists());
+    }
+
+    /**
+     * Test of deleteRecursively method with a wide tree, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testDeleteWideTree() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.DELETE_RECURSIVELY)) return;
+        File root = createTempDir();
+        for (int i = 0; i < 1000; i++) {
+            File dir = new File(root, "dir" + i);
+            new File(dir, "sub").mkdirs();
+            new File(dir, "file").createNewFile();
+        }
+        int descriptors = new File("/proc/self/fd").list().length;
+
+        DeleteResult result = instance.deleteRecursively(root);
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(3001, result.getInodesFreed());
+        Assert.assertFalse(root.exists());
+        Assert.assertEquals(descriptors, new File("/proc/self/fd").list().length);
+    }
+
+    /**
+     * Test of openDirectory method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testOpenDirectory() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.DIRECTORY_READER)) return;
+        File root = createTempDir();
+        new File(root, "sub").mkdir();
+        new File(root, "file").createNewFile();
+        int files = 0;
+        int dirs = 0;
+        NativeDirectoryReader reader = instance.openDirectory(root);
+        try {
+            byte[] name = new byte[256];
+            while (reader.next()) {
+                Assert.assertEquals(reader.getName().length(), reader.copyName(name, 0));
+                Assert.assertTrue(reader.getInode() != 0);
+                if (reader.getType() == NativeDirectoryReader.DT_DIR) {
+                    Assert.assertEquals("sub", reader.getName());
+                    dirs++;
+                } else {
+                    Assert.assertEquals("file", reader.getName());
+                    files++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        Assert.assertEquals(1, files);
+        Assert.assertEquals(1, dirs);
+    }
+
+    /**
+     * Test of stat and lstat methods, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testStat() throws IOException {
+        if (Functions.isWindows()) return;
+        File file = File.createTempFile("test", "test");
+        file.deleteOnExit();
+        File link = new File(file.getParentFile(), RandomStringUtils.randomAlphanumeric(8));
+        link.deleteOnExit();
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        instance.createSymlink(link.getAbsolutePath(), file);
+
+        NativeFileStat stat = instance.stat(link).copy();
+        Assert.assertTrue(stat.isRegularFile());
+        Assert.assertEquals(0, stat.getSize());
+        Assert.assertEquals(instance.getEuid(), stat.getUid());
+        Assert.assertEquals(file.lastModified() / 1000, stat.getLastModified() / 1000);
+
+        NativeFileStat linkStat = instance.lstat(link);
+        Assert.assertTrue(linkStat.isSymlink());
+        Assert.assertEquals(stat.getDevice(), linkStat.getDevice());
+        Assert.assertFalse(stat.getInode() == linkStat.getInode());
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("test", "dir");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.hudsonci.plugins.jna;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.eclipse.hudson.jna.NativeAccessException;
+import org.junit.Assert;
+import org.junit.Test;
+import hudson.Functions;
+
+/**
+ * Unit Test for the renames of JNA based Native Unix Support
+ */
+public class UnixFileRenameTest {
+
+    /**
+     * Test of renameNoReplace method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testRenameNoReplace() throws IOException {
+        if (Functions.isWindows()) return;
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        File dir = UnixFileCopyTest.createTempDir();
+        File from = new File(dir, "from");
+        byte[] data = UnixFileCopyTest.write(from, 100);
+        File to = new File(dir, "to");
+        UnixFileCopyTest.write(to, 10);
+        try {
+            instance.renameNoReplace(from, to);
+            Assert.fail("Renamed over an existing file");
+        } catch (NativeAccessException expected) {
+            System.out.println(expected.getMessage());
+        }
+        Assert.assertEquals(10, to.length());
+
+        to.delete();
+        instance.renameNoReplace(from, to);
+        Assert.assertFalse(from.exists());
+        Assert.assertTrue(Arrays.equals(data, UnixFileCopyTest.read(to)));
+        to.delete();
+        dir.delete();
+    }
+
+    /**
+     * Test of exchange method, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testExchange() throws IOException {
+        if (Functions.isWindows()) return;
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        File dir = UnixFileCopyTest.createTempDir();
+        File a = new File(dir, "a");
+        a.mkdir();
+        File file = new File(a, "file");
+        UnixFileCopyTest.write(file, 10);
+        File b = new File(dir, "b");
+        byte[] data = UnixFileCopyTest.write(b, 100);
+
+        instance.exchange(a, b);
+        Assert.assertTrue(a.isFile());
+        Assert.assertTrue(Arrays.equals(data, UnixFileCopyTest.read(a)));
+        Assert.assertTrue(new File(b, "file").isFile());
+        Assert.assertEquals(2, dir.list().length);
+        new File(b, "file").delete();
+        b.delete();
+        a.delete();
+        dir.delete();
+    }
+
+    /**
+     * Test of exchange method with a directory and its own subdirectory, of class JnaNativeUnixSupport.
+     */
+    @Test
+    public void testExchangeWithSubdirectory() throws IOException {
+        JnaNativeUnixSupport instance = new JnaNativeUnixSupport();
+        if (!instance.hasSupportFor(UnixNativeFunction.ATOMIC_RENAME)) return;
+        File dir = UnixFileCopyTest.createTempDir();
+        File a = new File(dir, "a");
+        File b = new File(a, "b");
+        b.mkdirs();
+        try {
+            instance.exchange(a, b);
+            Assert.fail("Exchanged a directory with its subdirectory");
+        } catch (NativeAccessException expected) {
+            // not emulated, which fails on the moved subdirectory instead
+            Assert.assertTrue(expected.getMessage(), expected.getMessage().endsWith(DirectGNUCLibrary.strerror(GNUCLibrary.EINVAL)));
+        }
+        Assert.assertTrue(b.isDirectory());
+        Assert.assertEquals(1, dir.list().length);
+        b.delete();
+        a.delete();
+        dir.delete();
+    }
+}